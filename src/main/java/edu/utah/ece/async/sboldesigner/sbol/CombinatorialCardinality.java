@@ -0,0 +1,164 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.CombinatorialDerivation;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.OperatorType;
+import org.sbolstandard.core2.TopLevel;
+import org.sbolstandard.core2.VariableComponent;
+
+/**
+ * Closed-form sizing of combinatorial design spaces. Everything here walks the
+ * derivation tree without creating a single design, so it is safe to call on
+ * derivations far too large to expand.
+ */
+public class CombinatorialCardinality {
+	/*
+	 * Rough RDF/XML sizes used to estimate the output of an expansion.
+	 */
+	private static final long BYTES_PER_DESIGN = 1200;
+	private static final long BYTES_PER_COMPONENT = 600;
+	private static final long BYTES_PER_SEQUENCE_CONSTRAINT = 500;
+
+	/**
+	 * The number of variant groups operator allows for n variants.
+	 */
+	public static BigInteger count(int n, OperatorType operator) {
+		return count(BigInteger.valueOf(n), operator);
+	}
+
+	/**
+	 * Same as above for any number of variants. The *ORMORE operators choose
+	 * subsets, which can't be counted for more than Integer.MAX_VALUE
+	 * variants.
+	 */
+	public static BigInteger count(BigInteger n, OperatorType operator) {
+		switch (operator) {
+		case ONE:
+			return n;
+		case ZEROORONE:
+			return n.add(BigInteger.ONE);
+		case ONEORMORE:
+			return BigInteger.ONE.shiftLeft(subsetSize(n)).subtract(BigInteger.ONE);
+		case ZEROORMORE:
+			return BigInteger.ONE.shiftLeft(subsetSize(n));
+		default:
+			throw new IllegalArgumentException(operator.toString() + " operator not supported");
+		}
+	}
+
+	private static int subsetSize(BigInteger n) {
+		if (n.bitLength() >= Integer.SIZE) {
+			throw new IllegalArgumentException(n + " variants are too many to choose subsets of");
+		}
+		return n.intValue();
+	}
+
+	/**
+	 * The number of designs expanding derivation produces.
+	 */
+	public static BigInteger count(CombinatorialDerivation derivation) {
+		return count(derivation, new HashSet<>(), new HashMap<>());
+	}
+
+	/**
+	 * counts remembers the size of every derivation seen so far, so shared
+	 * nested derivations are only walked once.
+	 */
+	private static BigInteger count(CombinatorialDerivation derivation, Set<URI> visiting,
+			Map<URI, BigInteger> counts) {
+		BigInteger known = counts.get(derivation.getIdentity());
+		if (known != null) {
+			return known;
+		}
+		if (!visiting.add(derivation.getIdentity())) {
+			throw new IllegalArgumentException(derivation.getIdentity() + " is nested inside of itself");
+		}
+
+		BigInteger size = BigInteger.ONE;
+		for (VariableComponent vc : derivation.getVariableComponents()) {
+			BigInteger variants = countVariants(vc, visiting, counts);
+			OperatorType operator = vc.getOperator();
+			if (variants.bitLength() >= Integer.SIZE
+					&& (operator == OperatorType.ONEORMORE || operator == OperatorType.ZEROORMORE)) {
+				throw new IllegalArgumentException(vc.getIdentity() + " has too many variants to expand");
+			}
+			size = size.multiply(count(variants, operator));
+		}
+
+		visiting.remove(derivation.getIdentity());
+		counts.put(derivation.getIdentity(), size);
+		return size;
+	}
+
+	/**
+	 * The number of variants vc chooses from. Explicit variants and members of
+	 * variant collections are counted once each, while every design of a nested
+	 * derivation is a variant of its own.
+	 */
+	private static BigInteger countVariants(VariableComponent vc, Set<URI> visiting, Map<URI, BigInteger> counts) {
+		Set<URI> variants = new HashSet<>(vc.getVariantURIs());
+		for (Collection c : vc.getVariantCollections()) {
+			for (TopLevel tl : c.getMembers()) {
+				if (tl instanceof ComponentDefinition) {
+					variants.add(tl.getIdentity());
+				}
+			}
+		}
+
+		BigInteger count = BigInteger.valueOf(variants.size());
+		for (CombinatorialDerivation nested : vc.getVariantDerivations()) {
+			count = count.add(count(nested, visiting, counts));
+		}
+		return count;
+	}
+
+	/**
+	 * Estimates how many bytes of RDF/XML expanding derivation writes. Parts
+	 * and sequences shared between designs are not counted.
+	 */
+	public static BigInteger estimateBytes(CombinatorialDerivation derivation) {
+		ComponentDefinition template = derivation.getTemplate();
+		long perDesign = template == null ? BYTES_PER_DESIGN : estimateBytes(template);
+		return count(derivation).multiply(BigInteger.valueOf(perDesign));
+	}
+
+	/**
+	 * Estimates how many bytes of RDF/XML design itself takes up, without the
+	 * parts and sequences it refers to.
+	 */
+	public static long estimateBytes(ComponentDefinition design) {
+		return BYTES_PER_DESIGN + BYTES_PER_COMPONENT * design.getComponents().size()
+				+ BYTES_PER_SEQUENCE_CONSTRAINT * design.getSequenceConstraints().size();
+	}
+
+	/**
+	 * Returns something like "1,024 designs (about 2.3 MB)".
+	 */
+	public static String describe(CombinatorialDerivation derivation) {
+		return String.format("%,d designs (about %s)", count(derivation), formatBytes(estimateBytes(derivation)));
+	}
+
+	private static String formatBytes(BigInteger bytes) {
+		String[] units = { "B", "KB", "MB", "GB", "TB", "PB" };
+		BigInteger kilo = BigInteger.valueOf(1024);
+		int unit = 0;
+		BigInteger whole = bytes;
+		while (whole.compareTo(kilo) >= 0 && unit < units.length - 1) {
+			whole = whole.divide(kilo);
+			unit++;
+		}
+		if (unit == units.length - 1) {
+			return String.format("%,d %s", whole, units[unit]);
+		}
+		double value = bytes.doubleValue() / Math.pow(1024, unit);
+		return String.format("%.1f %s", value, units[unit]);
+	}
+}
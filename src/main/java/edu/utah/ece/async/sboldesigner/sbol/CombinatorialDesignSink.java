@@ -0,0 +1,25 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.io.IOException;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+
+/**
+ * Receives the designs of a combinatorial expansion one at a time. The design
+ * only lives in doc for the duration of the call, so anything that should
+ * outlive it has to be copied or written out here.
+ */
+public interface CombinatorialDesignSink extends AutoCloseable {
+	void accept(SBOLDocument doc, ComponentDefinition design)
+			throws SBOLValidationException, SBOLConversionException, IOException;
+
+	/**
+	 * Called once after the last design has been accepted.
+	 */
+	@Override
+	default void close() throws SBOLConversionException, IOException {
+	}
+}
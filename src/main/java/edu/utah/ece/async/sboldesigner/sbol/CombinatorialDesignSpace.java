@@ -0,0 +1,508 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.sbolstandard.core2.AccessType;
+import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.CombinatorialDerivation;
+import org.sbolstandard.core2.Component;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.Identified;
+import org.sbolstandard.core2.OperatorType;
+import org.sbolstandard.core2.RestrictionType;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.SequenceConstraint;
+import org.sbolstandard.core2.TopLevel;
+import org.sbolstandard.core2.VariableComponent;
+
+/**
+ * The design space of a CombinatorialDerivation. Every derived design is
+ * addressed by an index in [0, size()) whose mixed-radix digits choose one
+ * group of variants per VariableComponent. Designs are built straight from the
+ * template on demand, so walking the space only ever holds the design that is
+ * currently being looked at.
+ * 
+ * Nested derivations are either expanded up front, which suits walking the
+ * whole space, or lazily (see {@link #forSampling}), where only the nested
+ * designs a picked design uses are ever created.
+ */
+public class CombinatorialDesignSpace implements Iterable<ComponentDefinition> {
+	private static final Comparator<Identified> BY_IDENTITY = Comparator.comparing(Identified::getIdentity);
+
+	private final SBOLDocument doc;
+	private final CombinatorialDerivation derivation;
+	private final List<VariableComponent> variableComponents = new ArrayList<>();
+	private final List<Variants> variants = new ArrayList<>();
+	private final List<BigInteger> radices = new ArrayList<>();
+	private final BigInteger size;
+	// the designs created through getDesign, when this space is nested lazily
+	private final Map<BigInteger, ComponentDefinition> created = new HashMap<>();
+
+	/**
+	 * The space of derivation with every nested derivation expanded.
+	 */
+	public CombinatorialDesignSpace(SBOLDocument doc, CombinatorialDerivation derivation)
+			throws SBOLValidationException {
+		this(doc, derivation, expandNestedDerivations(doc, derivation), null);
+	}
+
+	/**
+	 * The space of derivation where the designs of nested derivations are only
+	 * created when a design that uses them is created. Creating one design
+	 * then costs about as much as the templates involved, however large the
+	 * nested derivations are.
+	 */
+	public static CombinatorialDesignSpace forSampling(SBOLDocument doc, CombinatorialDerivation derivation)
+			throws SBOLValidationException {
+		return new CombinatorialDesignSpace(doc, derivation, null, createNestedSpaces(doc, derivation));
+	}
+
+	/**
+	 * Either expansions holds the designs of every derivation nested below
+	 * this one, or nestedSpaces holds their spaces.
+	 */
+	private CombinatorialDesignSpace(SBOLDocument doc, CombinatorialDerivation derivation,
+			Map<URI, List<ComponentDefinition>> expansions, Map<URI, CombinatorialDesignSpace> nestedSpaces)
+			throws SBOLValidationException {
+		this.doc = doc;
+		this.derivation = derivation;
+
+		// sorted so that the same index addresses the same design in every
+		// copy of doc
+		variableComponents.addAll(derivation.getVariableComponents());
+		variableComponents.sort(BY_IDENTITY);
+
+		BigInteger size = BigInteger.ONE;
+		for (VariableComponent vc : variableComponents) {
+			Variants vcVariants = collectVariants(vc, expansions, nestedSpaces);
+			BigInteger radix = CombinatorialCardinality.count(vcVariants.size, vc.getOperator());
+			variants.add(vcVariants);
+			radices.add(radix);
+			size = size.multiply(radix);
+		}
+		this.size = size;
+	}
+
+	private CombinatorialDesignSpace(SBOLDocument doc, CombinatorialDesignSpace space) {
+		this.doc = doc;
+		this.derivation = doc.getCombinatorialDerivation(space.derivation.getIdentity());
+
+		for (VariableComponent vc : space.variableComponents) {
+			variableComponents.add(derivation.getVariableComponent(vc.getDisplayId()));
+		}
+		for (Variants vcVariants : space.variants) {
+			variants.add(vcVariants.copyTo(doc));
+		}
+		radices.addAll(space.radices);
+		this.size = space.size;
+	}
+
+	/**
+	 * Returns this space resolved against doc, which has to hold copies of the
+	 * TopLevels of the original document including any designs of nested
+	 * derivations. Nested derivations are not expanded again, and lazily nested
+	 * ones start over without any designs created.
+	 */
+	public CombinatorialDesignSpace copyTo(SBOLDocument doc) {
+		return new CombinatorialDesignSpace(doc, this);
+	}
+
+	public CombinatorialDerivation getDerivation() {
+		return derivation;
+	}
+
+	/**
+	 * The number of designs in this space.
+	 */
+	public BigInteger size() {
+		return size;
+	}
+
+	/**
+	 * Creates the design at index inside doc.
+	 */
+	public ComponentDefinition createDesign(BigInteger index) throws SBOLValidationException {
+		if (index.signum() < 0 || index.compareTo(size) >= 0) {
+			throw new IndexOutOfBoundsException(index + " is outside of [0, " + size + ")");
+		}
+
+		ComponentDefinition template = derivation.getTemplate();
+		ComponentDefinition design = createTemplateCopy(index);
+
+		BigInteger rest = index;
+		for (int i = 0; i < variableComponents.size(); i++) {
+			BigInteger[] digit = rest.divideAndRemainder(radices.get(i));
+			rest = digit[0];
+
+			VariableComponent vc = variableComponents.get(i);
+			addChildren(template, template.getComponent(vc.getVariableURI()), design,
+					group(variants.get(i), vc.getOperator(), digit[1]));
+		}
+
+		return design;
+	}
+
+	/**
+	 * Returns the design at index, creating it in doc the first time only.
+	 */
+	private ComponentDefinition getDesign(BigInteger index) throws SBOLValidationException {
+		ComponentDefinition design = created.get(index);
+		if (design == null) {
+			design = createDesign(index);
+			created.put(index, design);
+		}
+		return design;
+	}
+
+	@Override
+	public Iterator<ComponentDefinition> iterator() {
+		return iterator(BigInteger.ZERO, size);
+	}
+
+	/**
+	 * Iterates over the designs with indexes in [from, to). Each design is
+	 * created in doc when it is reached.
+	 */
+	public Iterator<ComponentDefinition> iterator(BigInteger from, BigInteger to) {
+		return new Iterator<ComponentDefinition>() {
+			private BigInteger next = from;
+
+			@Override
+			public boolean hasNext() {
+				return next.compareTo(to) < 0;
+			}
+
+			@Override
+			public ComponentDefinition next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				try {
+					ComponentDefinition design = createDesign(next);
+					next = next.add(BigInteger.ONE);
+					return design;
+				} catch (SBOLValidationException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	private ComponentDefinition createTemplateCopy(BigInteger index) throws SBOLValidationException {
+		ComponentDefinition template = derivation.getTemplate();
+
+		// the index is part of the displayId so designs created apart from
+		// each other never collide
+		String uniqueId = SBOLUtils.getUniqueDisplayId(null, null,
+				template.getDisplayId() + "_GeneratedInstance_" + index, template.getVersion(), "CD", doc);
+		ComponentDefinition copy = (ComponentDefinition) doc.createCopy(template, uniqueId, template.getVersion());
+		copy.addWasDerivedFrom(template.getIdentity());
+		copy.addWasDerivedFrom(derivation.getIdentity());
+		for (Component component : copy.getComponents()) {
+			component.addWasDerivedFrom(template.getComponent(component.getDisplayId()).getIdentity());
+		}
+
+		copy.clearSequenceAnnotations();
+
+		return copy;
+	}
+
+	private static void addChildren(ComponentDefinition originalTemplate, Component originalComponent,
+			ComponentDefinition newParent, List<ComponentDefinition> children) throws SBOLValidationException {
+		Component newComponent = newParent.getComponent(originalComponent.getDisplayId());
+		newComponent.addWasDerivedFrom(originalComponent.getIdentity());
+
+		if (children.isEmpty()) {
+			removeConstraintReferences(newParent, newComponent);
+			newParent.removeComponent(newComponent);
+			SBOLUtils.releaseDisplayId(newParent, "Component", newComponent.getDisplayId());
+			return;
+		}
+
+		boolean first = true;
+		for (ComponentDefinition child : children) {
+			if (first) {
+				// take over the definition of newParent's version of the
+				// original component
+				newComponent.setDefinition(child.getIdentity());
+				first = false;
+			} else {
+				// create a new component
+				String uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null, child.getDisplayId() + "_Component",
+						"1", "Component", null);
+				Component link = newParent.createComponent(uniqueId, AccessType.PUBLIC, child.getIdentity());
+				link.addWasDerivedFrom(originalComponent.getIdentity());
+
+				// create a new 'prev precedes link' constraint
+				Component oldPrev = getBeforeComponent(originalTemplate, originalComponent);
+				if (oldPrev != null) {
+					Component newPrev = newParent.getComponent(oldPrev.getDisplayId());
+					if (newPrev != null) {
+						uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null,
+								newParent.getDisplayId() + "_SequenceConstraint", null, "SequenceConstraint", null);
+						newParent.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, newPrev.getIdentity(),
+								link.getIdentity());
+					}
+				}
+
+				// create a new 'link precedes next' constraint
+				Component oldNext = getAfterComponent(originalTemplate, originalComponent);
+				if (oldNext != null) {
+					Component newNext = newParent.getComponent(oldNext.getDisplayId());
+					if (newNext != null) {
+						uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null,
+								newParent.getDisplayId() + "_SequenceConstraint", null, "SequenceConstraint", null);
+						newParent.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, link.getIdentity(),
+								newNext.getIdentity());
+					}
+				}
+			}
+		}
+	}
+
+	private static void removeConstraintReferences(ComponentDefinition newParent, Component newComponent) {
+		for (SequenceConstraint sc : newParent.getSequenceConstraints()) {
+			if (sc.getSubject().equals(newComponent) || sc.getObject().equals(newComponent)) {
+				newParent.removeSequenceConstraint(sc);
+				SBOLUtils.releaseDisplayId(newParent, "SequenceConstraint", sc.getDisplayId());
+			}
+		}
+	}
+
+	private static Component getBeforeComponent(ComponentDefinition template, Component component) {
+		for (SequenceConstraint sc : template.getSequenceConstraints()) {
+			if (sc.getRestriction().equals(RestrictionType.PRECEDES) && sc.getObject().equals(component)) {
+				return sc.getSubject();
+			}
+		}
+		return null;
+	}
+
+	private static Component getAfterComponent(ComponentDefinition template, Component component) {
+		for (SequenceConstraint sc : template.getSequenceConstraints()) {
+			if (sc.getRestriction().equals(RestrictionType.PRECEDES) && sc.getSubject().equals(component)) {
+				return sc.getObject();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the index'th group of variants. ONE and ZEROORONE pick a single
+	 * variant (or none as the last group), while the *ORMORE operators read
+	 * the index as a bit mask over the variants, skipping the empty mask for
+	 * ONEORMORE.
+	 */
+	private static List<ComponentDefinition> group(Variants variants, OperatorType operator, BigInteger index)
+			throws SBOLValidationException {
+		List<ComponentDefinition> group = new ArrayList<>();
+
+		switch (operator) {
+		case ONE:
+		case ZEROORONE:
+			if (index.compareTo(variants.size) < 0) {
+				group.add(variants.get(index));
+			}
+			return group;
+		case ONEORMORE:
+			index = index.add(BigInteger.ONE);
+			// fall through
+		case ZEROORMORE:
+			for (int i = 0; i < index.bitLength(); i++) {
+				if (index.testBit(i)) {
+					group.add(variants.get(BigInteger.valueOf(i)));
+				}
+			}
+			return group;
+		default:
+			throw new IllegalArgumentException(operator.toString() + " operator not supported");
+		}
+	}
+
+	private static Variants collectVariants(VariableComponent vc, Map<URI, List<ComponentDefinition>> expansions,
+			Map<URI, CombinatorialDesignSpace> nestedSpaces) {
+		Map<URI, ComponentDefinition> variants = new LinkedHashMap<>();
+		Map<URI, CombinatorialDesignSpace> nested = new TreeMap<>();
+
+		// add all variants
+		for (ComponentDefinition CD : vc.getVariants()) {
+			variants.put(CD.getIdentity(), CD);
+		}
+
+		// add all variants from variantCollections
+		for (Collection c : vc.getVariantCollections()) {
+			for (TopLevel tl : c.getMembers()) {
+				if (tl instanceof ComponentDefinition) {
+					variants.put(tl.getIdentity(), (ComponentDefinition) tl);
+				}
+			}
+		}
+
+		// add all variants from variantDerivations
+		for (CombinatorialDerivation derivation : vc.getVariantDerivations()) {
+			if (expansions != null) {
+				for (ComponentDefinition CD : expansions.get(derivation.getIdentity())) {
+					variants.put(CD.getIdentity(), CD);
+				}
+			} else {
+				nested.put(derivation.getIdentity(), nestedSpaces.get(derivation.getIdentity()));
+			}
+		}
+
+		List<ComponentDefinition> list = new ArrayList<>(variants.values());
+		list.sort(BY_IDENTITY);
+		return new Variants(list, new ArrayList<>(nested.values()));
+	}
+
+	/**
+	 * Creates the lazy space of every derivation nested below root once, so
+	 * VariableComponents sharing a nested derivation share its designs.
+	 */
+	private static Map<URI, CombinatorialDesignSpace> createNestedSpaces(SBOLDocument doc,
+			CombinatorialDerivation root) throws SBOLValidationException {
+		Map<URI, CombinatorialDesignSpace> spaces = new HashMap<>();
+
+		List<CombinatorialDerivation> order = orderDerivations(root);
+		for (CombinatorialDerivation nested : order.subList(0, order.size() - 1)) {
+			spaces.put(nested.getIdentity(), new CombinatorialDesignSpace(doc, nested, null, spaces));
+		}
+
+		return spaces;
+	}
+
+	/**
+	 * Expands every derivation nested below root exactly once. Derivations are
+	 * expanded children first, so each of them finds the designs of its own
+	 * nested derivations already in the returned map, however many
+	 * VariableComponents share them.
+	 */
+	private static Map<URI, List<ComponentDefinition>> expandNestedDerivations(SBOLDocument doc,
+			CombinatorialDerivation root) throws SBOLValidationException {
+		Map<URI, List<ComponentDefinition>> expansions = new HashMap<>();
+
+		List<CombinatorialDerivation> order = orderDerivations(root);
+		for (CombinatorialDerivation nested : order.subList(0, order.size() - 1)) {
+			List<ComponentDefinition> designs = new ArrayList<>();
+			new CombinatorialDesignSpace(doc, nested, expansions, null).forEach(designs::add);
+			expansions.put(nested.getIdentity(), designs);
+		}
+
+		return expansions;
+	}
+
+	/**
+	 * Returns root and every derivation nested below it, each one after all
+	 * the derivations nested inside of it. root always comes last.
+	 */
+	private static List<CombinatorialDerivation> orderDerivations(CombinatorialDerivation root) {
+		List<CombinatorialDerivation> order = new ArrayList<>();
+		orderDerivations(root, new HashSet<>(), new HashSet<>(), order);
+		return order;
+	}
+
+	private static void orderDerivations(CombinatorialDerivation derivation, Set<URI> visiting, Set<URI> visited,
+			List<CombinatorialDerivation> order) {
+		URI identity = derivation.getIdentity();
+		if (visited.contains(identity)) {
+			return;
+		}
+		if (!visiting.add(identity)) {
+			throw new IllegalArgumentException(identity + " is nested inside of itself");
+		}
+
+		for (VariableComponent vc : derivation.getVariableComponents()) {
+			for (CombinatorialDerivation nested : vc.getVariantDerivations()) {
+				orderDerivations(nested, visiting, visited, order);
+			}
+		}
+
+		visiting.remove(identity);
+		visited.add(identity);
+		order.add(derivation);
+	}
+
+	/**
+	 * Returns the nested derivations referred to by more than one
+	 * VariableComponent. These are sub-libraries shared between several parts
+	 * of the design, whose designs are expanded once and reused.
+	 */
+	public Set<CombinatorialDerivation> getSharedDerivations() {
+		Map<URI, Integer> references = new HashMap<>();
+		Set<CombinatorialDerivation> shared = new LinkedHashSet<>();
+
+		for (CombinatorialDerivation parent : orderDerivations(derivation)) {
+			for (VariableComponent vc : parent.getVariableComponents()) {
+				for (CombinatorialDerivation nested : vc.getVariantDerivations()) {
+					if (references.merge(nested.getIdentity(), 1, Integer::sum) > 1) {
+						shared.add(nested);
+					}
+				}
+			}
+		}
+
+		return shared;
+	}
+
+	/**
+	 * The variants of one VariableComponent: parts, followed by the designs of
+	 * lazily nested derivations, which are created when they are picked.
+	 */
+	private static class Variants {
+		private final List<ComponentDefinition> parts;
+		private final List<CombinatorialDesignSpace> nested;
+		private final BigInteger size;
+
+		Variants(List<ComponentDefinition> parts, List<CombinatorialDesignSpace> nested) {
+			this.parts = parts;
+			this.nested = nested;
+
+			BigInteger size = BigInteger.valueOf(parts.size());
+			for (CombinatorialDesignSpace space : nested) {
+				size = size.add(space.size());
+			}
+			this.size = size;
+		}
+
+		ComponentDefinition get(BigInteger index) throws SBOLValidationException {
+			if (index.compareTo(BigInteger.valueOf(parts.size())) < 0) {
+				return parts.get(index.intValue());
+			}
+
+			index = index.subtract(BigInteger.valueOf(parts.size()));
+			for (CombinatorialDesignSpace space : nested) {
+				if (index.compareTo(space.size()) < 0) {
+					return space.getDesign(index);
+				}
+				index = index.subtract(space.size());
+			}
+			throw new IndexOutOfBoundsException(index + " is outside of the variants");
+		}
+
+		Variants copyTo(SBOLDocument doc) {
+			List<ComponentDefinition> partCopies = new ArrayList<>(parts.size());
+			for (ComponentDefinition CD : parts) {
+				partCopies.add(doc.getComponentDefinition(CD.getIdentity()));
+			}
+			List<CombinatorialDesignSpace> nestedCopies = new ArrayList<>(nested.size());
+			for (CombinatorialDesignSpace space : nested) {
+				nestedCopies.add(space.copyTo(doc));
+			}
+			return new Variants(partCopies, nestedCopies);
+		}
+	}
+}
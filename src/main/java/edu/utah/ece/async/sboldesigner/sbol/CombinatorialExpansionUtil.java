@@ -1,270 +1,250 @@
 package edu.utah.ece.async.sboldesigner.sbol;
 
-import java.util.HashSet;
-import java.util.concurrent.ThreadLocalRandom;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Iterator;
 
 import javax.swing.JOptionPane;
 
-import org.sbolstandard.core2.AccessType;
-import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.Activity;
 import org.sbolstandard.core2.CombinatorialDerivation;
-import org.sbolstandard.core2.Component;
 import org.sbolstandard.core2.ComponentDefinition;
-import org.sbolstandard.core2.OperatorType;
-import org.sbolstandard.core2.RestrictionType;
+import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SequenceConstraint;
 import org.sbolstandard.core2.StrategyType;
-import org.sbolstandard.core2.TopLevel;
-import org.sbolstandard.core2.VariableComponent;
 
 import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.CombinatorialDerivationInputDialog;
 
 public class CombinatorialExpansionUtil {
 
-	public static SBOLDocument createCombinatorialDesign(SBOLDocument doc) throws SBOLValidationException {
-		CombinatorialDerivation derivation = CombinatorialDerivationInputDialog.pickCombinatorialDerivation(doc, null);
-		if (derivation == null) {
-			JOptionPane.showMessageDialog(null, "There are no combinatorial designs");
+	public static SBOLDocument createCombinatorialDesign(SBOLDocument doc)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		CombinatorialDesignSpace space = pickDesignSpace(doc);
+		if (space == null) {
 			return null;
 		}
+		CombinatorialDerivation derivation = space.getDerivation();
 
-		HashSet<ComponentDefinition> enumeration = enumerate(doc, derivation);
+		SBOLDocument generated;
 
-		if (!derivation.isSetStrategy()) {
-			int choice = JOptionPane.showOptionDialog(null,
-					"The strategy property is not set.  Would you like to enumerate or sample?",
-					"Combinatorial Design Strategy", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null,
-					StrategyType.values(), StrategyType.values()[0]);
-			if (choice == JOptionPane.CLOSED_OPTION) {
+		if (derivation.getStrategy() == StrategyType.SAMPLE) {
+			int count = askSampleCount();
+			if (count == 0) {
 				return null;
 			}
-
-			derivation.setStrategy(StrategyType.values()[choice]);
-		}
-
-		SBOLDocument generated = new SBOLDocument();
-		generated.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-
-		if (derivation.getStrategy() == StrategyType.SAMPLE) {
-			ComponentDefinition[] a = enumeration.toArray(new ComponentDefinition[0]);
-			ComponentDefinition sample = a[ThreadLocalRandom.current().nextInt(a.length)];
-			ProvenanceUtil.createProvenance(doc, sample, derivation);
-			doc.createRecursiveCopy(generated, sample);
+			SBOLDocument samples = generated = new SBOLDocument();
+			drain(doc, new CombinatorialSampler(space).iterator(count),
+					(source, sample) -> source.createRecursiveCopy(samples, sample));
 		} else if (derivation.getStrategy() == StrategyType.ENUMERATE) {
-			ProvenanceUtil.createProvenance(doc, enumeration.iterator().next(), derivation);
-			for (ComponentDefinition CD : enumeration) {
-				doc.createRecursiveCopy(generated, CD);
-			}
+			generated = ParallelCombinatorialExpansion.expand(doc, space);
 		} else {
 			throw new IllegalArgumentException();
 		}
 
+		generated.setDefaultURIprefix(getUserPrefix());
+		linkToActivity(generated, derivation);
 		return generated;
 	}
 
-	private static ComponentDefinition createTemplateCopy(SBOLDocument doc, CombinatorialDerivation derivation)
-			throws SBOLValidationException {
-		ComponentDefinition template = derivation.getTemplate();
-
-		String uniqueId = SBOLUtils.getUniqueDisplayId(null, null, template.getDisplayId() + "_GeneratedInstance",
-				template.getVersion(), "CD", doc);
-		ComponentDefinition copy = (ComponentDefinition) doc.createCopy(template, uniqueId, template.getVersion());
-		copy.addWasDerivedFrom(template.getIdentity());
-		copy.addWasDerivedFrom(derivation.getIdentity());
-		for (Component component : copy.getComponents()) {
-			component.addWasDerivedFrom(template.getComponent(component.getDisplayId()).getIdentity());
+	/**
+	 * Same as above, except the designs are written to file as they are
+	 * produced instead of being collected in memory. Libraries larger than
+	 * the expansion shard size are split over several files next to file,
+	 * which are listed in a manifest. Returns whether anything was written.
+	 */
+	public static boolean createCombinatorialDesign(SBOLDocument doc, File file)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		CombinatorialDesignSpace space = pickDesignSpace(doc);
+		if (space == null) {
+			return false;
 		}
+		CombinatorialDerivation derivation = space.getDerivation();
 
-		copy.clearSequenceAnnotations();
-
-		return copy;
-	}
-
-	private static HashSet<ComponentDefinition> enumerate(SBOLDocument doc, CombinatorialDerivation derivation)
-			throws SBOLValidationException {
-		HashSet<ComponentDefinition> parents = new HashSet<>();
-		parents.add(createTemplateCopy(doc, derivation));
-
-		for (VariableComponent vc : derivation.getVariableComponents()) {
-			HashSet<ComponentDefinition> newParents = new HashSet<>();
-
-			for (ComponentDefinition parent : parents) {
-				for (HashSet<ComponentDefinition> children : group(collectVariants(doc, vc), vc.getOperator())) {
-					// create copy of parent
-					String uniqueId = SBOLUtils.getUniqueDisplayId(null, null, parent.getDisplayId(),
-							parent.getVersion(), "CD", doc);
-					ComponentDefinition newParent = (ComponentDefinition) doc.createCopy(parent, uniqueId, "1");
-
-					// add children
-					ComponentDefinition template = derivation.getTemplate();
-					addChildren(template, template.getComponent(vc.getVariableURI()), newParent, children);
-
-					// add to newParents
-					newParents.add(newParent);
-				}
+		if (derivation.getStrategy() == StrategyType.SAMPLE) {
+			int count = askSampleCount();
+			if (count == 0) {
+				return false;
 			}
+			drain(doc, new CombinatorialSampler(space).iterator(count),
+					new ShardedDesignWriter(file, createActivity(derivation)));
+		} else if (derivation.getStrategy() == StrategyType.ENUMERATE) {
+			Activity activity = createActivity(derivation);
 
-			parents = newParents;
-		}
-
-		return parents;
-	}
-
-	private static void addChildren(ComponentDefinition originalTemplate, Component originalComponent,
-			ComponentDefinition newParent, HashSet<ComponentDefinition> children) throws SBOLValidationException {
-		Component newComponent = newParent.getComponent(originalComponent.getDisplayId());
-		newComponent.addWasDerivedFrom(originalComponent.getIdentity());
-
-		if (children.isEmpty()) {
-			removeConstraintReferences(newParent, newComponent);
-			newParent.removeComponent(newComponent);
-			return;
-		}
-
-		boolean first = true;
-		for (ComponentDefinition child : children) {
-			if (first) {
-				// take over the definition of newParent's version of the
-				// original component
-				newComponent.setDefinition(child.getIdentity());
-				first = false;
+			int shardSize = SBOLEditorPreferences.INSTANCE.getExpansionShardSize();
+			if (space.size().compareTo(BigInteger.valueOf(shardSize)) <= 0) {
+				expand(doc, space, new ShardedDesignWriter(file, activity));
 			} else {
-				// create a new component
-				String uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null, child.getDisplayId() + "_Component",
-						"1", "Component", null);
-				Component link = newParent.createComponent(uniqueId, AccessType.PUBLIC, child.getIdentity());
-				link.addWasDerivedFrom(originalComponent.getIdentity());
-
-				// create a new 'prev precedes link' constraint
-				Component oldPrev = getBeforeComponent(originalTemplate, originalComponent);
-				if (oldPrev != null) {
-					Component newPrev = newParent.getComponent(oldPrev.getDisplayId());
-					if (newPrev != null) {
-						uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null,
-								newParent.getDisplayId() + "_SequenceConstraint", null, "SequenceConstraint", null);
-						newParent.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, newPrev.getIdentity(),
-								link.getIdentity());
-					}
-				}
-
-				// create a new 'link precedes next' constraint
-				Component oldNext = getAfterComponent(originalTemplate, originalComponent);
-				if (oldNext != null) {
-					Component newNext = newParent.getComponent(oldNext.getDisplayId());
-					if (newNext != null) {
-						uniqueId = SBOLUtils.getUniqueDisplayId(newParent, null,
-								newParent.getDisplayId() + "_SequenceConstraint", null, "SequenceConstraint", null);
-						newParent.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, link.getIdentity(),
-								newNext.getIdentity());
-					}
+				try (ShardedDesignWriter.Manifest manifest = new ShardedDesignWriter.Manifest(file)) {
+					ParallelCombinatorialExpansion.expand(doc, space, BigInteger.valueOf(shardSize),
+							from -> new ShardedDesignWriter(file, from.toString(), shardSize,
+									ShardedDesignWriter.DEFAULT_MAX_BYTES, manifest, activity));
 				}
 			}
+		} else {
+			throw new IllegalArgumentException();
 		}
+
+		return true;
 	}
 
-	private static void removeConstraintReferences(ComponentDefinition newParent, Component newComponent) {
-		for (SequenceConstraint sc : newParent.getSequenceConstraints()) {
-			if (sc.getSubject().equals(newComponent) || sc.getObject().equals(newComponent)) {
-				newParent.removeSequenceConstraint(sc);
-			}
-		}
+	private static String getUserPrefix() {
+		return SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString();
 	}
 
-	private static Component getBeforeComponent(ComponentDefinition template, Component component) {
-		for (SequenceConstraint sc : template.getSequenceConstraints()) {
-			if (sc.getRestriction().equals(RestrictionType.PRECEDES) && sc.getObject().equals(component)) {
-				return sc.getSubject();
-			}
-		}
-		return null;
+	/**
+	 * Creates the Activity of expanding derivation in a document of its own,
+	 * for sinks that copy it next to the designs they write. The source
+	 * document and the template are not touched.
+	 */
+	private static Activity createActivity(CombinatorialDerivation derivation) throws SBOLValidationException {
+		SBOLDocument provenance = new SBOLDocument();
+		provenance.setDefaultURIprefix(getUserPrefix());
+		return ProvenanceUtil.createActivity(provenance, derivation.getDisplayId() + "_SBOLDesignerActivity",
+				derivation);
 	}
 
-	private static Component getAfterComponent(ComponentDefinition template, Component component) {
-		for (SequenceConstraint sc : template.getSequenceConstraints()) {
-			if (sc.getRestriction().equals(RestrictionType.PRECEDES) && sc.getSubject().equals(component)) {
-				return sc.getObject();
+	/**
+	 * Creates the Activity of expanding derivation in generated, and links the
+	 * designs of derivation in generated to it. The parts and nested designs
+	 * they use were not generated by it, so they are left as they are.
+	 */
+	private static void linkToActivity(SBOLDocument generated, CombinatorialDerivation derivation)
+			throws SBOLValidationException {
+		Activity activity = ProvenanceUtil.createActivity(generated,
+				derivation.getDisplayId() + "_SBOLDesignerActivity", derivation);
+		for (ComponentDefinition cd : generated.getComponentDefinitions()) {
+			if (cd.getWasDerivedFroms().contains(derivation.getIdentity())) {
+				cd.addWasGeneratedBy(activity.getIdentity());
 			}
 		}
-		return null;
 	}
 
-	private static HashSet<HashSet<ComponentDefinition>> group(HashSet<ComponentDefinition> variants,
-			OperatorType operator) {
-		HashSet<HashSet<ComponentDefinition>> groups = new HashSet<>();
-
-		for (ComponentDefinition CD : variants) {
-			HashSet<ComponentDefinition> group = new HashSet<>();
-			group.add(CD);
-			groups.add(group);
+	/**
+	 * Asks the user for the derivation to expand and its strategy if it isn't
+	 * set, and for confirmation when enumerating it exceeds the expansion
+	 * budget. Returns null if the user cancels or there is nothing to expand.
+	 */
+	private static CombinatorialDesignSpace pickDesignSpace(SBOLDocument doc) throws SBOLValidationException {
+		CombinatorialDerivation derivation = CombinatorialDerivationInputDialog.pickCombinatorialDerivation(doc, null);
+		if (derivation == null) {
+			JOptionPane.showMessageDialog(null, "There are no combinatorial designs");
+			return null;
 		}
 
-		if (operator == OperatorType.ONE) {
-			return groups;
-		}
+		if (!derivation.isSetStrategy()) {
+			int choice = JOptionPane.showOptionDialog(null,
+					"The strategy property is not set.  Would you like to enumerate or sample?",
+					"Combinatorial Design Strategy", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null,
+					StrategyType.values(), StrategyType.values()[0]);
+			if (choice == JOptionPane.CLOSED_OPTION) {
+				return null;
+			}
 
-		if (operator == OperatorType.ZEROORONE) {
-			groups.add(new HashSet<>());
-			return groups;
+			derivation.setStrategy(StrategyType.values()[choice]);
 		}
 
-		groups.clear();
-		generateCombinations(groups, variants.toArray(new ComponentDefinition[0]), 0, new HashSet<>());
-		if (operator == OperatorType.ONEORMORE) {
-			return groups;
+		// sampling only creates the designs asked for, however large the space is
+		if (derivation.getStrategy() == StrategyType.ENUMERATE && !withinBudget(derivation)) {
+			return null;
 		}
 
-		if (operator == OperatorType.ZEROORMORE) {
-			groups.add(new HashSet<>());
-			return groups;
+		// a sample only creates the nested designs it uses
+		CombinatorialDesignSpace space = derivation.getStrategy() == StrategyType.SAMPLE
+				? CombinatorialDesignSpace.forSampling(doc, derivation)
+				: new CombinatorialDesignSpace(doc, derivation);
+		if (space.size().signum() == 0) {
+			JOptionPane.showMessageDialog(null, "The combinatorial design does not have any variants");
+			return null;
 		}
 
-		throw new IllegalArgumentException(operator.toString() + " operator not supported");
+		return space;
 	}
 
 	/**
-	 * Generates all combinations except the empty set.
+	 * Asks how many designs to sample. Returns 0 if the user cancels.
 	 */
-	private static void generateCombinations(HashSet<HashSet<ComponentDefinition>> groups,
-			ComponentDefinition[] variants, int i, HashSet<ComponentDefinition> set) {
-		if (i == variants.length) {
-			if (!set.isEmpty()) {
-				groups.add(set);
+	private static int askSampleCount() {
+		while (true) {
+			String answer = JOptionPane.showInputDialog(null, "How many designs would you like to sample?", "1");
+			if (answer == null) {
+				return 0;
+			}
+			try {
+				int count = Integer.parseInt(answer.trim());
+				if (count > 0) {
+					return count;
+				}
+			} catch (NumberFormatException e) {
+				// asked again below
 			}
-			return;
+			JOptionPane.showMessageDialog(null, "Please enter a positive number of designs.");
 		}
+	}
 
-		HashSet<ComponentDefinition> no = new HashSet<>(set);
-		generateCombinations(groups, variants, i + 1, no);
-
-		HashSet<ComponentDefinition> yes = new HashSet<>(set);
-		yes.add(variants[i]);
-		generateCombinations(groups, variants, i + 1, yes);
+	/**
+	 * Returns whether derivation is small enough to expand, asking the user
+	 * when it is above the expansion budget.
+	 */
+	private static boolean withinBudget(CombinatorialDerivation derivation) {
+		BigInteger count;
+		try {
+			count = CombinatorialCardinality.count(derivation);
+		} catch (IllegalArgumentException e) {
+			JOptionPane.showMessageDialog(null, "The combinatorial design cannot be expanded: " + e.getMessage());
+			return false;
+		}
+
+		long budget = SBOLEditorPreferences.INSTANCE.getExpansionBudget();
+		if (count.compareTo(BigInteger.valueOf(budget)) <= 0) {
+			return true;
+		}
+
+		int choice = JOptionPane.showConfirmDialog(null,
+				"Expanding " + derivation.getDisplayId() + " produces " + CombinatorialCardinality.describe(derivation)
+						+ String.format(", which is above the expansion budget of %,d designs.", budget)
+						+ "  Would you like to expand it anyway?",
+				"Combinatorial Design Size", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+		return choice == JOptionPane.YES_OPTION;
 	}
 
-	private static HashSet<ComponentDefinition> collectVariants(SBOLDocument doc, VariableComponent vc)
-			throws SBOLValidationException {
-		HashSet<ComponentDefinition> variants = new HashSet<>();
+	/**
+	 * Streams every design of derivation into sink. Designs are created in doc
+	 * one at a time and removed again once sink has seen them, so doc never
+	 * holds more than one of them.
+	 */
+	public static void expand(SBOLDocument doc, CombinatorialDerivation derivation, CombinatorialDesignSink sink)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		expand(doc, new CombinatorialDesignSpace(doc, derivation), sink);
+	}
 
-		// add all variants
-		variants.addAll(vc.getVariants());
+	/**
+	 * Same as above, for a space that has already been built on doc.
+	 */
+	public static void expand(SBOLDocument doc, CombinatorialDesignSpace space, CombinatorialDesignSink sink)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		drain(doc, space.iterator(), sink);
+	}
 
-		// add all variants from variantCollections
-		for (Collection c : vc.getVariantCollections()) {
-			for (TopLevel tl : c.getMembers()) {
-				if (tl instanceof ComponentDefinition) {
-					variants.add((ComponentDefinition) tl);
+	/**
+	 * Hands every design of designs to sink and removes it from doc again,
+	 * along with its displayId, also when sink fails on it. sink is closed afterwards, whether or not
+	 * all designs made it.
+	 */
+	static void drain(SBOLDocument doc, Iterator<ComponentDefinition> designs, CombinatorialDesignSink sink)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		try (CombinatorialDesignSink closing = sink) {
+			while (designs.hasNext()) {
+				ComponentDefinition design = designs.next();
+				try {
+					closing.accept(doc, design);
+				} finally {
+					doc.removeComponentDefinition(design);
+					SBOLUtils.releaseDisplayId(doc, "CD", design.getDisplayId(), design.getVersion());
 				}
 			}
 		}
-
-		// add all variants from variantDerivations
-		for (CombinatorialDerivation derivation : vc.getVariantDerivations()) {
-			variants.addAll(enumerate(doc, derivation));
-		}
-
-		return variants;
 	}
 }
@@ -0,0 +1,111 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLValidationException;
+
+/**
+ * Draws uniformly random designs from a CombinatorialDesignSpace. A random
+ * index is decoded straight into its design, so the cost of a sample depends
+ * on the size of the template rather than the size of the design space.
+ */
+public class CombinatorialSampler {
+	private final CombinatorialDesignSpace space;
+	private final Random random;
+
+	public CombinatorialSampler(CombinatorialDesignSpace space) {
+		this(space, new Random());
+	}
+
+	/**
+	 * A sampler that always draws the same designs for the same seed.
+	 */
+	public CombinatorialSampler(CombinatorialDesignSpace space, long seed) {
+		this(space, new Random(seed));
+	}
+
+	private CombinatorialSampler(CombinatorialDesignSpace space, Random random) {
+		if (space.size().signum() == 0) {
+			throw new IllegalArgumentException("The design space is empty");
+		}
+		this.space = space;
+		this.random = random;
+	}
+
+	/**
+	 * Creates one random design.
+	 */
+	public ComponentDefinition sample() throws SBOLValidationException {
+		return space.createDesign(nextIndex(space.size(), random));
+	}
+
+	/**
+	 * Creates n distinct random designs, or every design if the space holds
+	 * fewer than n.
+	 */
+	public List<ComponentDefinition> sample(int n) throws SBOLValidationException {
+		List<ComponentDefinition> samples = new ArrayList<>();
+		for (BigInteger index : sampleIndexes(space.size(), n, random)) {
+			samples.add(space.createDesign(index));
+		}
+		return samples;
+	}
+
+	/**
+	 * Same as above, except each design is only created when the iterator
+	 * reaches it, so the designs can be written out and removed one at a time.
+	 */
+	public Iterator<ComponentDefinition> iterator(int n) {
+		Iterator<BigInteger> indexes = sampleIndexes(space.size(), n, random).iterator();
+		return new Iterator<ComponentDefinition>() {
+			@Override
+			public boolean hasNext() {
+				return indexes.hasNext();
+			}
+
+			@Override
+			public ComponentDefinition next() {
+				try {
+					return space.createDesign(indexes.next());
+				} catch (SBOLValidationException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Picks n distinct indexes with Floyd's algorithm, which needs exactly n
+	 * random numbers no matter how large the space is.
+	 */
+	static Set<BigInteger> sampleIndexes(BigInteger size, int n, Random random) {
+		BigInteger count = size.min(BigInteger.valueOf(n));
+
+		Set<BigInteger> indexes = new LinkedHashSet<>();
+		for (BigInteger j = size.subtract(count); j.compareTo(size) < 0; j = j.add(BigInteger.ONE)) {
+			BigInteger index = nextIndex(j.add(BigInteger.ONE), random);
+			if (!indexes.add(index)) {
+				indexes.add(j);
+			}
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns a uniformly random index in [0, bound).
+	 */
+	private static BigInteger nextIndex(BigInteger bound, Random random) {
+		BigInteger index;
+		do {
+			index = new BigInteger(bound.bitLength(), random);
+		} while (index.compareTo(bound) >= 0);
+		return index;
+	}
+}
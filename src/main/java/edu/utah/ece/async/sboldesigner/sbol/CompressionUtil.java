@@ -0,0 +1,84 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLReader;
+import org.sbolstandard.core2.SBOLValidationException;
+
+/**
+ * Transparent compression of SBOL, GenBank and FASTA files. A file is gzip
+ * compressed when its name ends with ".gz", e.g. design.xml.gz, and the rest of
+ * the name tells its format as usual.
+ */
+public class CompressionUtil {
+	public static final String GZIP_EXTENSION = ".gz";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CompressionUtil() {
+	}
+
+	public static boolean isCompressed(String fileName) {
+		return fileName.toLowerCase().endsWith(GZIP_EXTENSION);
+	}
+
+	/**
+	 * Returns fileName without the compression extension, so its format can
+	 * be told from the extension left.
+	 */
+	public static String getUncompressedName(String fileName) {
+		if (isCompressed(fileName)) {
+			return fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+		}
+		return fileName;
+	}
+
+	/**
+	 * Reads file with SBOLReader, decompressing it if it is compressed.
+	 */
+	public static SBOLDocument read(File file) throws SBOLValidationException, IOException, SBOLConversionException {
+		try (InputStream in = decompress(file.getName(),
+				new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+			return SBOLReader.read(in);
+		}
+	}
+
+	/**
+	 * Returns a stream that decompresses in if fileName is compressed, or in
+	 * itself otherwise.
+	 */
+	public static InputStream decompress(String fileName, InputStream in) throws IOException {
+		return isCompressed(fileName) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+	}
+
+	/**
+	 * Returns a stream that compresses into out if fileName is compressed, or
+	 * out itself otherwise. The returned stream must be closed or finished
+	 * (see {@link #finish(OutputStream)}) for the compressed data to be
+	 * complete.
+	 */
+	public static OutputStream compress(String fileName, OutputStream out) throws IOException {
+		return isCompressed(fileName) ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+	}
+
+	/**
+	 * Writes what's left of the compressed data of a stream returned by
+	 * compress without closing the stream underneath.
+	 */
+	public static void finish(OutputStream out) throws IOException {
+		if (out instanceof GZIPOutputStream) {
+			((GZIPOutputStream) out).finish();
+		} else {
+			out.flush();
+		}
+	}
+}
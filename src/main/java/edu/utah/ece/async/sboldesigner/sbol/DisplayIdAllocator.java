@@ -0,0 +1,194 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.Location;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.SequenceAnnotation;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Hands out the displayIds for SBOLUtils.getUniqueDisplayId. Every scope (an
+ * SBOLDocument, ComponentDefinition or CombinatorialDerivation) gets an
+ * allocator that remembers, per type, displayId and version, the first suffix
+ * that may still be free. Candidates are still checked against the scope, so
+ * the returned displayIds are always unique, but the search starts where the
+ * last one ended instead of at the beginning.
+ * 
+ * Removals have to be reported through release so that freed displayIds are
+ * handed out again. Unreported removals only mean that a higher suffix than
+ * necessary is used. A displayId whose search is back at the beginning is
+ * forgotten, so displayIds that are allocated once and released again don't
+ * pile up.
+ */
+class DisplayIdAllocator {
+	// weak keys are compared by identity, which matters because SBOL objects
+	// change their hashCode whenever they are edited
+	private static final ConcurrentMap<Object, DisplayIdAllocator> allocators = new MapMaker().weakKeys()
+			.makeMap();
+
+	interface Lookup {
+		boolean isTaken(String displayId) throws SBOLValidationException;
+	}
+
+	private final Map<Key, Integer> next = new HashMap<>();
+
+	// the displayIds of the Locations of the scope, collected the first time
+	// allocateRange is called and kept up to date from then on
+	private Set<String> locationIds = null;
+
+	static DisplayIdAllocator of(Object scope) {
+		DisplayIdAllocator allocator = allocators.get(scope);
+		if (allocator == null) {
+			allocators.putIfAbsent(scope, new DisplayIdAllocator());
+			allocator = allocators.get(scope);
+		}
+		return allocator;
+	}
+
+	/**
+	 * Returns displayId, displayId1, displayId2, ... whichever comes first
+	 * that lookup doesn't know about.
+	 */
+	synchronized String allocate(String dataType, String displayId, String version, Lookup lookup)
+			throws SBOLValidationException {
+		Key key = new Key(dataType, displayId, version);
+		for (int i = next.getOrDefault(key, 0); true; i++) {
+			String candidate = candidate(dataType, displayId, i);
+			if (candidate != null && !lookup.isTaken(candidate)) {
+				next.put(key, i + 1);
+				return candidate;
+			}
+		}
+	}
+
+	/**
+	 * Same as allocate, for the Ranges of comp, which has to be the scope of
+	 * this allocator. The Locations of comp are only collected on the first
+	 * call. After that, allocated Ranges are added and released ones removed,
+	 * so Locations added to comp some other way are not seen.
+	 */
+	synchronized String allocateRange(ComponentDefinition comp, String displayId) throws SBOLValidationException {
+		if (locationIds == null) {
+			locationIds = new HashSet<>();
+			for (SequenceAnnotation sa : comp.getSequenceAnnotations()) {
+				for (Location location : sa.getLocations()) {
+					locationIds.add(location.getDisplayId());
+				}
+			}
+		}
+		String allocated = allocate("Range", displayId, null, locationIds::contains);
+		locationIds.add(allocated);
+		return allocated;
+	}
+
+	/**
+	 * This will always return Range, Range2, Range3... etc, skipping Range1.
+	 */
+	private static String candidate(String dataType, String displayId, int i) {
+		if (i == 0) {
+			return displayId;
+		}
+		if (i == 1 && dataType.equals("Range")) {
+			return null;
+		}
+		return displayId + i;
+	}
+
+	/**
+	 * Makes displayId of type dataType and version available again. version
+	 * is null for types that aren't TopLevels.
+	 */
+	synchronized void release(String dataType, String displayId, String version) {
+		if (locationIds != null && dataType.equals("Range")) {
+			locationIds.remove(displayId);
+		}
+
+		lower(new Key(dataType, displayId, version), 0);
+
+		// displayId may also be an allocated displayId followed by a suffix,
+		// which can start anywhere in its trailing digits
+		int digits = displayId.length();
+		while (digits > 0 && displayId.charAt(digits - 1) >= '0' && displayId.charAt(digits - 1) <= '9') {
+			digits--;
+		}
+		for (int start = digits; start < displayId.length(); start++) {
+			if (displayId.charAt(start) != '0' && displayId.length() - start < 10) {
+				lower(new Key(dataType, displayId.substring(0, start), version),
+						Integer.parseInt(displayId.substring(start)));
+			}
+		}
+	}
+
+	/**
+	 * Lets the search for key start at i again if it is past it.
+	 */
+	private void lower(Key key, int i) {
+		Integer current = next.get(key);
+		if (current == null || i >= current) {
+			return;
+		}
+		if (i == 0) {
+			next.remove(key);
+		} else {
+			next.put(key, i);
+		}
+	}
+
+	/**
+	 * Returns whether nothing is remembered about any displayId.
+	 */
+	synchronized boolean isEmpty() {
+		return next.isEmpty();
+	}
+
+	/**
+	 * Forgets everything known about displayIds of type dataType.
+	 */
+	synchronized void releaseAll(String dataType) {
+		if (dataType.equals("Range")) {
+			locationIds = null;
+		}
+		Iterator<Key> keys = next.keySet().iterator();
+		while (keys.hasNext()) {
+			if (keys.next().dataType.equals(dataType)) {
+				keys.remove();
+			}
+		}
+	}
+
+	private static class Key {
+		private final String dataType;
+		private final String displayId;
+		private final String version;
+
+		Key(String dataType, String displayId, String version) {
+			this.dataType = dataType;
+			this.displayId = displayId;
+			this.version = version;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return dataType.equals(other.dataType) && displayId.equals(other.displayId)
+					&& Objects.equals(version, other.version);
+		}
+
+		@Override
+		public int hashCode() {
+			return (dataType.hashCode() * 31 + displayId.hashCode()) * 31 + (version == null ? 0 : version.hashCode());
+		}
+	}
+}
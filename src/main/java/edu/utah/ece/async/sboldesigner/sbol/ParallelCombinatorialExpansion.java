@@ -0,0 +1,178 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.TopLevel;
+
+/**
+ * Expands a CombinatorialDesignSpace on the common fork/join pool. The index
+ * range of the space is split into disjoint shards, and every shard is
+ * expanded into its own copy of the source document, since SBOLDocuments are
+ * not safe to share between threads. Shards are either merged into one
+ * document or handed to a sink of their own.
+ */
+public class ParallelCombinatorialExpansion {
+	private static final BigInteger MIN_SHARD_SIZE = BigInteger.valueOf(64);
+	private static final int SHARDS_PER_THREAD = 4;
+
+	/**
+	 * Expands every design of space and returns them merged into a single
+	 * document. The source document must not be modified until this returns.
+	 */
+	public static SBOLDocument expand(SBOLDocument doc, CombinatorialDesignSpace space)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		return run(new ShardTask(doc, space, null, BigInteger.ZERO, space.size(), shardSize(space)));
+	}
+
+	/**
+	 * Expands every design of space, writing each shard to the sink sinks
+	 * returns for the first index of the shard. Sinks are closed once their
+	 * shard is done.
+	 */
+	public static void expand(SBOLDocument doc, CombinatorialDesignSpace space,
+			Function<BigInteger, CombinatorialDesignSink> sinks)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		expand(doc, space, shardSize(space), sinks);
+	}
+
+	/**
+	 * Same as above, with shards of shardSize designs each (the last one may
+	 * be smaller), starting at multiples of shardSize.
+	 */
+	public static void expand(SBOLDocument doc, CombinatorialDesignSpace space, BigInteger shardSize,
+			Function<BigInteger, CombinatorialDesignSink> sinks)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		run(new ShardTask(doc, space, sinks, BigInteger.ZERO, space.size(), shardSize));
+	}
+
+	private static BigInteger shardSize(CombinatorialDesignSpace space) {
+		BigInteger shards = BigInteger.valueOf(ForkJoinPool.getCommonPoolParallelism() * SHARDS_PER_THREAD);
+		BigInteger size = space.size().add(shards).subtract(BigInteger.ONE).divide(shards);
+		return size.max(MIN_SHARD_SIZE);
+	}
+
+	private static SBOLDocument run(ShardTask task)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		try {
+			return ForkJoinPool.commonPool().invoke(task);
+		} catch (RuntimeException e) {
+			// fork/join may rethrow a copy of the original exception, so look
+			// through the whole cause chain
+			for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if (cause instanceof SBOLValidationException) {
+					throw (SBOLValidationException) cause;
+				}
+				if (cause instanceof SBOLConversionException) {
+					throw (SBOLConversionException) cause;
+				}
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+			}
+			throw e;
+		}
+	}
+
+	private static class ShardTask extends RecursiveTask<SBOLDocument> {
+		private static final long serialVersionUID = 1L;
+
+		private final SBOLDocument doc;
+		private final CombinatorialDesignSpace space;
+		private final Function<BigInteger, CombinatorialDesignSink> sinks;
+		private final BigInteger from;
+		private final BigInteger to;
+		private final BigInteger shardSize;
+
+		ShardTask(SBOLDocument doc, CombinatorialDesignSpace space, Function<BigInteger, CombinatorialDesignSink> sinks,
+				BigInteger from, BigInteger to, BigInteger shardSize) {
+			this.doc = doc;
+			this.space = space;
+			this.sinks = sinks;
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+		}
+
+		@Override
+		protected SBOLDocument compute() {
+			if (to.subtract(from).compareTo(shardSize) <= 0) {
+				try {
+					return expandShard();
+				} catch (SBOLValidationException | SBOLConversionException | IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			// split at a multiple of shardSize, so every shard but the last
+			// is full
+			BigInteger shards = to.subtract(from).add(shardSize).subtract(BigInteger.ONE).divide(shardSize);
+			BigInteger middle = from.add(shards.shiftRight(1).multiply(shardSize));
+			ShardTask left = new ShardTask(doc, space, sinks, from, middle, shardSize);
+			ShardTask right = new ShardTask(doc, space, sinks, middle, to, shardSize);
+			left.fork();
+			SBOLDocument rightResult = right.compute();
+			SBOLDocument leftResult = left.join();
+
+			if (leftResult == null) {
+				return null;
+			}
+			try {
+				merge(rightResult, leftResult);
+			} catch (SBOLValidationException e) {
+				throw new IllegalStateException(e);
+			}
+			return leftResult;
+		}
+
+		private SBOLDocument expandShard() throws SBOLValidationException, SBOLConversionException, IOException {
+			SBOLDocument shard = copy(doc);
+			CombinatorialDesignSpace shardSpace = space.copyTo(shard);
+
+			SBOLDocument generated = null;
+			CombinatorialDesignSink sink;
+			if (sinks == null) {
+				SBOLDocument out = generated = new SBOLDocument();
+				out.setDefaultURIprefix(doc.getDefaultURIprefix());
+				sink = (source, design) -> source.createRecursiveCopy(out, design);
+			} else {
+				sink = sinks.apply(from);
+			}
+
+			CombinatorialExpansionUtil.drain(shard, shardSpace.iterator(from, to), sink);
+
+			return generated;
+		}
+	}
+
+	private static SBOLDocument copy(SBOLDocument doc) throws SBOLValidationException {
+		SBOLDocument copy = new SBOLDocument();
+		copy.setDefaultURIprefix(doc.getDefaultURIprefix());
+		copy.createCopy(doc);
+		return copy;
+	}
+
+	/**
+	 * Copies everything in from that to does not have yet. Shards share parts,
+	 * sequences and nested designs, which only need to be copied once. Two
+	 * shards that produced different objects with the same identity would lose
+	 * one of them, so that fails.
+	 */
+	private static void merge(SBOLDocument from, SBOLDocument to) throws SBOLValidationException {
+		for (TopLevel tl : from.getTopLevels()) {
+			TopLevel existing = to.getTopLevel(tl.getIdentity());
+			if (existing == null) {
+				from.createRecursiveCopy(to, tl);
+			} else if (!existing.equals(tl)) {
+				throw new IllegalStateException(
+						"Two shards of the expansion produced different designs named " + tl.getIdentity());
+			}
+		}
+	}
+}
@@ -58,6 +58,50 @@ public class ProvenanceUtil {
 			activity = doc.createActivity(activityId, "1");
 		}
 
+		describe(activity, usage);
+
+		// Link with all TopLevels
+		for (TopLevel tl : doc.getTopLevels()) {
+			// check if in namespace
+			if (SBOLUtils.notInNamespace(tl) || tl instanceof Activity || tl instanceof CombinatorialDerivation) {
+				continue;
+			}
+
+			boolean hasActivity = false;
+
+			// Check if hasActivity
+			for (URI uri : tl.getWasGeneratedBys()) {
+				TopLevel generatedBy = doc.getTopLevel(uri);
+				if (generatedBy != null && generatedBy.getDisplayId().equals(activity.getDisplayId())
+						&& generatedBy instanceof Activity) {
+					hasActivity = true;
+				}
+			}
+
+			// Attach if there is no existing Activity
+			if (!hasActivity) {
+				tl.addWasGeneratedBy(activity.getIdentity());
+			}
+		}
+	}
+
+	/**
+	 * Creates a new SBOLDesignerActivity named displayId in doc, without
+	 * linking it to any TopLevel. Used for designs that are generated into a
+	 * document of their own, which link to the Activity themselves.
+	 */
+	public static Activity createActivity(SBOLDocument doc, String displayId, Identified usage)
+			throws SBOLValidationException {
+		Activity activity = doc.createActivity(displayId, "1");
+		describe(activity, usage);
+		return activity;
+	}
+
+	/**
+	 * Sets the end time of activity and adds usage, the creator and the
+	 * association with SBOLDesigner unless it already has them.
+	 */
+	private static void describe(Activity activity, Identified usage) throws SBOLValidationException {
 		// Set the ended at time
 		activity.setEndedAtTime(DateTime.now());
 
@@ -98,30 +142,6 @@ public class ProvenanceUtil {
 			Association association = activity.createAssociation("Association", designerURI);
 			association.addRole(SEQUENCE_EDITOR);
 		}
-
-		// Link with all TopLevels
-		for (TopLevel tl : doc.getTopLevels()) {
-			// check if in namespace
-			if (SBOLUtils.notInNamespace(tl) || tl instanceof Activity || tl instanceof CombinatorialDerivation) {
-				continue;
-			}
-
-			boolean hasActivity = false;
-
-			// Check if hasActivity
-			for (URI uri : tl.getWasGeneratedBys()) {
-				TopLevel generatedBy = doc.getTopLevel(uri);
-				if (generatedBy != null && generatedBy.getDisplayId().equals(activity.getDisplayId())
-						&& generatedBy instanceof Activity) {
-					hasActivity = true;
-				}
-			}
-
-			// Attach if there is no existing Activity
-			if (!hasActivity) {
-				tl.addWasGeneratedBy(activity.getIdentity());
-			}
-		}
 	}
 
 	/*
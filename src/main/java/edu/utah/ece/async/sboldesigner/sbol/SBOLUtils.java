@@ -56,12 +56,22 @@ import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
 
 public class SBOLUtils {
+	/**
+	 * SBOLReader keeps its URI prefix and compliance in static fields, so
+	 * whoever sets them and reads with them holds this lock. Reading the bytes
+	 * of a file may happen outside of it.
+	 */
+	public static final Object READER_LOCK = new Object();
+
 	/**
 	 * Returns an int which guarantees a unique URI. Pass in the parent CD (if
 	 * dataType isn't a TopLevel), the displayId you want, the version (if
 	 * dataType is a TopLevel), the type of object, and the SBOLDocument
 	 * containing the design.
 	 * 
+	 * Where the previous call for the same displayId left off is remembered,
+	 * so removals have to be reported with releaseDisplayId.
+	 * 
 	 * @throws SBOLValidationException
 	 */
 	public static String getUniqueDisplayId(ComponentDefinition comp, CombinatorialDerivation derivation,
@@ -69,93 +79,65 @@ public class SBOLUtils {
 		// if can get using some displayId, then try the next number
 		switch (dataType) {
 		case "CD":
-			for (int i = 1; true; i++) {
-				if (i == 1 && design.getComponentDefinition(displayId, version) == null) {
-					return displayId;
-				}
-				if (design.getComponentDefinition(displayId + i, version) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(design).allocate(dataType, displayId, version,
+					id -> design.getComponentDefinition(id, version) != null);
+		// children aren't versioned, so their version is left out of the key
 		case "SequenceAnnotation":
-			for (int i = 1; true; i++) {
-				if (i == 1 && comp.getSequenceAnnotation(displayId) == null) {
-					return displayId;
-				}
-				if (comp.getSequenceAnnotation(displayId + i) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(comp).allocate(dataType, displayId, null,
+					id -> comp.getSequenceAnnotation(id) != null);
 		case "SequenceConstraint":
-			for (int i = 1; true; i++) {
-				if (i == 1 && comp.getSequenceConstraint(displayId) == null) {
-					return displayId;
-				}
-				if (comp.getSequenceConstraint(displayId + i) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(comp).allocate(dataType, displayId, null,
+					id -> comp.getSequenceConstraint(id) != null);
 		case "Component":
-			for (int i = 1; true; i++) {
-				if (i == 1 && comp.getComponent(displayId) == null) {
-					return displayId;
-				}
-				if (comp.getComponent(displayId + i) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(comp).allocate(dataType, displayId, null,
+					id -> comp.getComponent(id) != null);
 		case "Sequence":
-			for (int i = 1; true; i++) {
-				if (i == 1 && design.getSequence(displayId, version) == null) {
-					return displayId;
-				}
-				if (design.getSequence(displayId + i, version) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(design).allocate(dataType, displayId, version,
+					id -> design.getSequence(id, version) != null);
 		case "Range":
-			test: for (int i = 1; true; i++) {
-				for (SequenceAnnotation sa : comp.getSequenceAnnotations()) {
-					if (i == 1 && sa.getLocation(displayId) != null) {
-						continue test;
-					}
-					if (sa.getLocation(displayId + i) != null) {
-						continue test;
-					}
-				}
-				// This will always return Range, Range2, Range3... etc,
-				// skipping Range1
-				return i == 1 ? displayId : displayId + i;
-			}
+			return DisplayIdAllocator.of(comp).allocateRange(comp, displayId);
 		case "CombinatorialDerivation":
-			for (int i = 1; true; i++) {
-				if (i == 1 && design.getCombinatorialDerivation(displayId, version) == null) {
-					return displayId;
-				}
-				if (design.getCombinatorialDerivation(displayId + i, version) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(design).allocate(dataType, displayId, version,
+					id -> design.getCombinatorialDerivation(id, version) != null);
 		case "VariableComponent":
-			for (int i = 1; true; i++) {
-				if (i == 1 && derivation.getVariableComponent(displayId) == null) {
-					return displayId;
-				}
-				if (derivation.getVariableComponent(displayId + i) == null) {
-					return displayId + i;
-				}
-			}
+			return DisplayIdAllocator.of(derivation).allocate(dataType, displayId, null,
+					id -> derivation.getVariableComponent(id) != null);
 		default:
 			throw new IllegalArgumentException();
 		}
 	}
 
+	/**
+	 * Lets getUniqueDisplayId hand out displayId again after the object of
+	 * type dataType with that displayId has been removed from scope (the
+	 * parent CD, the CombinatorialDerivation or the SBOLDocument, matching
+	 * what was passed to getUniqueDisplayId).
+	 */
+	public static void releaseDisplayId(Object scope, String dataType, String displayId) {
+		DisplayIdAllocator.of(scope).release(dataType, displayId, null);
+	}
+
+	/**
+	 * Same as releaseDisplayId, for a TopLevel of the given version.
+	 */
+	public static void releaseDisplayId(Object scope, String dataType, String displayId, String version) {
+		DisplayIdAllocator.of(scope).release(dataType, displayId, version);
+	}
+
+	/**
+	 * Same as releaseDisplayId, for when all objects of type dataType have
+	 * been removed from scope.
+	 */
+	public static void releaseDisplayIds(Object scope, String dataType) {
+		DisplayIdAllocator.of(scope).releaseAll(dataType);
+	}
+
 	/**
 	 * Creates an alphabetized String[] representing SO names of descendant
 	 * roles based on the passed in part's role.
 	 */
 	public static String[] createRefinements(Part part) {
-		SequenceOntology so = new SequenceOntology();
+		SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 		String[] descendantNames;
 		if (part.getRole() != null) {
 			descendantNames = so.getDescendantNamesOf(part.getRole()).toArray(new String[0]);
@@ -177,7 +159,6 @@ public class SBOLUtils {
 	 */
 	public static List<URI> getRefinementRoles(Identified comp, Part part) {
 		ArrayList<URI> list = new ArrayList<URI>();
-		SequenceOntology so = new SequenceOntology();
 		Set<URI> roles;
 		if (comp instanceof ComponentDefinition) {
 			roles = ((ComponentDefinition) comp).getRoles();
@@ -190,7 +171,7 @@ public class SBOLUtils {
 		}
 		for (URI r : roles) {
 			// assumes the part role is always the first role in the list
-			if (so.isDescendantOf(r, part.getRole())) {
+			if (SequenceOntologyIndex.INSTANCE.isDescendantOf(r, part.getRole())) {
 				list.add(r);
 			}
 		}
@@ -211,8 +192,9 @@ public class SBOLUtils {
 		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
 		fc.setAcceptAllFileFilterUsed(true);
 		fc.setFileFilter(
-				new FileNameExtensionFilter("SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta)",
-						"xml", "rdf", "sbol", "gb", "gbk", "fasta"));
+				new FileNameExtensionFilter(
+						"SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta), compressed (*.gz)",
+						"xml", "rdf", "sbol", "gb", "gbk", "fasta", "gz"));
 
 		int returnVal = fc.showOpenDialog(null);
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
@@ -220,9 +202,11 @@ public class SBOLUtils {
 			Preferences.userRoot().node("path").put("importPath", directory.getPath());
 			SBOLDocument doc = null;
 			try {
-				SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-				SBOLReader.setCompliant(true);
-				doc = SBOLReader.read(fc.getSelectedFile());
+				synchronized (READER_LOCK) {
+					SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
+					SBOLReader.setCompliant(true);
+					doc = CompressionUtil.read(fc.getSelectedFile());
+				}
 			} catch (Exception e1) {
 				MessageDialog.showMessage(null, "This file is unable to be imported: ", e1.getMessage());
 				e1.printStackTrace();
@@ -244,8 +228,9 @@ public class SBOLUtils {
 		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
 		fc.setAcceptAllFileFilterUsed(true);
 		fc.setFileFilter(
-				new FileNameExtensionFilter("SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta)",
-						"xml", "rdf", "sbol", "gb", "gbk", "fasta"));
+				new FileNameExtensionFilter(
+						"SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta), compressed (*.gz)",
+						"xml", "rdf", "sbol", "gb", "gbk", "fasta", "gz"));
 
 		int returnVal = fc.showOpenDialog(null);
 		if (returnVal == JFileChooser.APPROVE_OPTION) {
@@ -272,8 +257,9 @@ public class SBOLUtils {
 		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
 		fc.setAcceptAllFileFilterUsed(true);
 		fc.setFileFilter(
-				new FileNameExtensionFilter("SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta)",
-						"xml", "rdf", "sbol", "gb", "gbk", "fasta"));
+				new FileNameExtensionFilter(
+						"SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta), compressed (*.gz)",
+						"xml", "rdf", "sbol", "gb", "gbk", "fasta", "gz"));
 
 		return fc;
 	}
@@ -348,8 +334,7 @@ public class SBOLUtils {
 
 	public static boolean notInNamespace(TopLevel tl) {
 		URI uri = tl.getIdentity();
-		return uri != null
-				&& !uri.toString().startsWith(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
+		return uri != null && !uri.toString().startsWith(SBOLEditorPreferences.INSTANCE.getUserURIPrefix());
 	}
 
 	/**
@@ -510,12 +495,8 @@ public class SBOLUtils {
 		} else {
 			// roles exist
 			for (ComponentDefinition cd : setCD) {
-				SequenceOntology so = new SequenceOntology();
-				for (URI role : cd.getRoles()) {
-					if (so.isDescendantOf(role, part.getRole()) || role.equals(part.getRole())) {
-						list.add(cd);
-						break;
-					}
+				if (SequenceOntologyIndex.INSTANCE.isAnyDescendantOrSelf(cd.getRoles(), part.getRole())) {
+					list.add(cd);
 				}
 			}
 		}
@@ -0,0 +1,89 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.net.URI;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.sbolstandard.core2.SequenceOntology;
+
+/**
+ * The Sequence Ontology shared by the whole application. Every term gets an
+ * int id and the descendants of a term are stored as a BitSet of those ids the
+ * first time they are asked for, so isDescendantOf is a bit lookup instead of
+ * a walk through the ontology.
+ */
+public enum SequenceOntologyIndex {
+	INSTANCE;
+
+	// matches the identifiers.org and purl forms of SO terms
+	private static final Pattern SO_TERM = Pattern.compile("SO[:_](\\d+)$");
+
+	private final SequenceOntology so = new SequenceOntology();
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final Map<Integer, BitSet> descendants = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the shared SequenceOntology, for looking up names and URIs.
+	 */
+	public SequenceOntology getOntology() {
+		return so;
+	}
+
+	/**
+	 * Returns the id of term, assigning a new one if term hasn't been seen
+	 * before.
+	 */
+	public int getId(URI term) {
+		return ids.computeIfAbsent(normalize(term), key -> nextId.getAndIncrement());
+	}
+
+	/**
+	 * Returns whether child is a (strict) descendant of parent.
+	 */
+	public boolean isDescendantOf(URI child, URI parent) {
+		if (child == null || parent == null) {
+			return false;
+		}
+		return getDescendants(parent).get(getId(child));
+	}
+
+	/**
+	 * Returns whether any of terms is parent or a descendant of parent.
+	 */
+	public boolean isAnyDescendantOrSelf(Collection<URI> terms, URI parent) {
+		int parentId = getId(parent);
+		BitSet parentDescendants = getDescendants(parent);
+		for (URI term : terms) {
+			int id = getId(term);
+			if (id == parentId || parentDescendants.get(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the ids of all descendants of parent. The result must not be
+	 * modified.
+	 */
+	public BitSet getDescendants(URI parent) {
+		return descendants.computeIfAbsent(getId(parent), id -> {
+			BitSet bits = new BitSet();
+			for (URI descendant : so.getDescendantURIsOf(parent)) {
+				bits.set(getId(descendant));
+			}
+			return bits;
+		});
+	}
+
+	private static String normalize(URI term) {
+		Matcher matcher = SO_TERM.matcher(term.toString());
+		return matcher.find() ? "SO:" + matcher.group(1) : term.toString();
+	}
+}
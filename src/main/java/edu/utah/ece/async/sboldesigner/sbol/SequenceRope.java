@@ -0,0 +1,353 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sbolstandard.core2.Sequence;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * An immutable nucleotide sequence made of shared pieces. Concatenation and
+ * reverse complement don't copy any elements; length and hashes are known for
+ * every piece, so different ropes are told apart in constant time and charAt
+ * only walks down the tree. The flat String is only built by toString; ropes
+ * with the same hashes are confirmed equal by walking both of them.
+ */
+public abstract class SequenceRope {
+	public static final SequenceRope EMPTY = new Leaf("");
+
+	// two hashes with different primes make collisions rare, so the elements
+	// are hardly ever compared
+	private static final long P1 = 2147483629L;
+	private static final long P2 = 2147483587L;
+	private static final long BASE = 131;
+
+	private static final char[] COMPLEMENTS = new char[128];
+
+	static {
+		for (char c = 0; c < COMPLEMENTS.length; c++) {
+			COMPLEMENTS[c] = c;
+		}
+		String from = "acgturykmbvdhACGTURYKMBVDH";
+		String to = "tgcaayrmkvbhdTGCAAYRMKVBHD";
+		for (int i = 0; i < from.length(); i++) {
+			COMPLEMENTS[from.charAt(i)] = to.charAt(i);
+		}
+	}
+
+	// the ropes of Sequences, which stay valid as long as the elements don't
+	// change
+	private static final ConcurrentMap<Sequence, Cached> cache = new MapMaker().weakKeys().makeMap();
+
+	final int length;
+	// hash of the elements and of their reverse complement, for both primes
+	final long hash1, hash2, rcHash1, rcHash2;
+	// BASE^length for both primes
+	final long pow1, pow2;
+
+	private SequenceRope(int length, long hash1, long hash2, long rcHash1, long rcHash2, long pow1, long pow2) {
+		this.length = length;
+		this.hash1 = hash1;
+		this.hash2 = hash2;
+		this.rcHash1 = rcHash1;
+		this.rcHash2 = rcHash2;
+		this.pow1 = pow1;
+		this.pow2 = pow2;
+	}
+
+	public static SequenceRope of(String elements) {
+		return elements == null || elements.isEmpty() ? EMPTY : new Leaf(elements);
+	}
+
+	/**
+	 * Returns the rope of sequence's elements. This only looks at the
+	 * elements again if they changed since the last call.
+	 */
+	public static SequenceRope of(Sequence sequence) {
+		String elements = sequence.getElements();
+		Cached cached = cache.get(sequence);
+		if (cached != null && cached.elements == elements) {
+			return cached.rope;
+		}
+
+		SequenceRope rope = of(elements);
+		cache.put(sequence, new Cached(elements, rope));
+		return rope;
+	}
+
+	/**
+	 * Remembers that sequence was created from rope, so of(sequence) doesn't
+	 * have to look at the elements.
+	 */
+	public static void cache(Sequence sequence, SequenceRope rope) {
+		cache.put(sequence, new Cached(sequence.getElements(), rope));
+	}
+
+	/**
+	 * Concatenates all the ropes in order into a balanced rope.
+	 */
+	public static SequenceRope concat(List<SequenceRope> ropes) {
+		return concat(ropes, 0, ropes.size());
+	}
+
+	private static SequenceRope concat(List<SequenceRope> ropes, int from, int to) {
+		if (to - from == 0) {
+			return EMPTY;
+		}
+		if (to - from == 1) {
+			return ropes.get(from);
+		}
+
+		int mid = (from + to) >>> 1;
+		SequenceRope left = concat(ropes, from, mid);
+		SequenceRope right = concat(ropes, mid, to);
+		if (left.length == 0) {
+			return right;
+		}
+		if (right.length == 0) {
+			return left;
+		}
+		return new Concat(left, right);
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * A 62 bit hash of the elements, made of both hashes. Ropes with the same
+	 * elements have the same hash however they were built.
+	 */
+	public long contentHash() {
+		return hash1 << 31 | hash2;
+	}
+
+	/**
+	 * A view of the reverse complement of this rope.
+	 */
+	public SequenceRope reverseComplement() {
+		return length == 0 ? this : new ReverseComplement(this);
+	}
+
+	public abstract char charAt(int index);
+
+	/**
+	 * Whether this rope has the same elements as other. Ropes with different
+	 * hashes are told apart in constant time; the elements are only compared
+	 * when the hashes match, piece by piece without copying them.
+	 */
+	public boolean contentEquals(SequenceRope other) {
+		if (this == other) {
+			return true;
+		}
+		if (length != other.length || hash1 != other.hash1 || hash2 != other.hash2) {
+			return false;
+		}
+
+		Cursor a = new Cursor(this);
+		Cursor b = new Cursor(other);
+		for (int i = 0; i < length; i++) {
+			if (a.next() != b.next()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(length);
+		appendTo(sb, false);
+		return sb.toString();
+	}
+
+	abstract void appendTo(StringBuilder sb, boolean reverseComplement);
+
+	/**
+	 * Hands the pieces of this rope to cursor, in reverse complement if
+	 * reverseComplement is set.
+	 */
+	abstract void visit(Cursor cursor, boolean reverseComplement);
+
+	/**
+	 * Walks the elements of a rope in order. Only the pieces still to be
+	 * visited are kept, which are at most the depth of the rope.
+	 */
+	private static final class Cursor {
+		private final ArrayDeque<SequenceRope> pending = new ArrayDeque<>();
+		private final ArrayDeque<Boolean> pendingReversed = new ArrayDeque<>();
+		private String leaf = "";
+		private boolean leafReversed = false;
+		private int index = 0;
+
+		Cursor(SequenceRope rope) {
+			push(rope, false);
+		}
+
+		void push(SequenceRope rope, boolean reverseComplement) {
+			pending.push(rope);
+			pendingReversed.push(reverseComplement);
+		}
+
+		void setLeaf(String elements, boolean reverseComplement) {
+			leaf = elements;
+			leafReversed = reverseComplement;
+			index = 0;
+		}
+
+		/**
+		 * Returns the next element. Must not be called more often than the
+		 * length of the rope.
+		 */
+		char next() {
+			while (index == leaf.length()) {
+				pending.pop().visit(this, pendingReversed.pop());
+			}
+			int i = index++;
+			return leafReversed ? complement(leaf.charAt(leaf.length() - 1 - i)) : leaf.charAt(i);
+		}
+	}
+
+	private static final class Leaf extends SequenceRope {
+		private final String elements;
+
+		private Leaf(String elements) {
+			super(elements.length(), hash(elements, P1, false), hash(elements, P2, false), hash(elements, P1, true),
+					hash(elements, P2, true), pow(elements.length(), P1), pow(elements.length(), P2));
+			this.elements = elements;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return elements.charAt(index);
+		}
+
+		@Override
+		void appendTo(StringBuilder sb, boolean reverseComplement) {
+			if (!reverseComplement) {
+				sb.append(elements);
+				return;
+			}
+			for (int i = elements.length() - 1; i >= 0; i--) {
+				sb.append(complement(elements.charAt(i)));
+			}
+		}
+
+		@Override
+		void visit(Cursor cursor, boolean reverseComplement) {
+			cursor.setLeaf(elements, reverseComplement);
+		}
+	}
+
+	private static final class Concat extends SequenceRope {
+		private final SequenceRope left, right;
+
+		private Concat(SequenceRope left, SequenceRope right) {
+			super(left.length + right.length, (left.hash1 * right.pow1 + right.hash1) % P1,
+					(left.hash2 * right.pow2 + right.hash2) % P2, (right.rcHash1 * left.pow1 + left.rcHash1) % P1,
+					(right.rcHash2 * left.pow2 + left.rcHash2) % P2, left.pow1 * right.pow1 % P1,
+					left.pow2 * right.pow2 % P2);
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return index < left.length ? left.charAt(index) : right.charAt(index - left.length);
+		}
+
+		@Override
+		void appendTo(StringBuilder sb, boolean reverseComplement) {
+			if (reverseComplement) {
+				right.appendTo(sb, true);
+				left.appendTo(sb, true);
+			} else {
+				left.appendTo(sb, false);
+				right.appendTo(sb, false);
+			}
+		}
+
+		@Override
+		void visit(Cursor cursor, boolean reverseComplement) {
+			// the piece pushed last is visited first
+			if (reverseComplement) {
+				cursor.push(left, true);
+				cursor.push(right, true);
+			} else {
+				cursor.push(right, false);
+				cursor.push(left, false);
+			}
+		}
+	}
+
+	private static final class ReverseComplement extends SequenceRope {
+		private final SequenceRope rope;
+
+		private ReverseComplement(SequenceRope rope) {
+			super(rope.length, rope.rcHash1, rope.rcHash2, rope.hash1, rope.hash2, rope.pow1, rope.pow2);
+			this.rope = rope;
+		}
+
+		@Override
+		public SequenceRope reverseComplement() {
+			return rope;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return complement(rope.charAt(length - 1 - index));
+		}
+
+		@Override
+		void appendTo(StringBuilder sb, boolean reverseComplement) {
+			rope.appendTo(sb, !reverseComplement);
+		}
+
+		@Override
+		void visit(Cursor cursor, boolean reverseComplement) {
+			cursor.push(rope, !reverseComplement);
+		}
+	}
+
+	private static class Cached {
+		private final String elements;
+		private final SequenceRope rope;
+
+		Cached(String elements, SequenceRope rope) {
+			this.elements = elements;
+			this.rope = rope;
+		}
+	}
+
+	private static long hash(String elements, long p, boolean reverseComplement) {
+		long hash = 0;
+		int n = elements.length();
+		for (int i = 0; i < n; i++) {
+			char c = reverseComplement ? complement(elements.charAt(n - 1 - i)) : elements.charAt(i);
+			hash = (hash * BASE + c) % p;
+		}
+		return hash;
+	}
+
+	private static long pow(int exponent, long p) {
+		long result = 1;
+		long base = BASE;
+		while (exponent > 0) {
+			if ((exponent & 1) == 1) {
+				result = result * base % p;
+			}
+			base = base * base % p;
+			exponent >>= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * The IUPAC complement of c, keeping its case.
+	 */
+	static char complement(char c) {
+		return c < COMPLEMENTS.length ? COMPLEMENTS[c] : c;
+	}
+}
@@ -0,0 +1,256 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sbolstandard.core2.Activity;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.SBOLWriter;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Writes the designs of a combinatorial expansion to disk as they are
+ * produced. Designs are collected into a shard document that is written out
+ * and dropped every maxDesigns designs or about maxBytes bytes, so memory is
+ * bounded by the shard size instead of the library size. Parts and sequences
+ * shared between designs are written once per shard.
+ * 
+ * The size of a shard is only known once it has been written, so shards are
+ * rolled over on the size of the designs scaled by the bytes per design
+ * actually written so far. A shard of several designs that still ends up
+ * larger than maxBytes is written again as two halves.
+ * 
+ * The format is picked by the file extension: GenBank for .gb/.gbk, FASTA for
+ * .fasta/.fa and SBOL otherwise, and shards are gzip compressed if the name
+ * ends with .gz (e.g. library.xml.gz). Every written design is listed in the
+ * Manifest next to the shard holding it.
+ * 
+ * If an Activity is given, every written design is linked to it as generated
+ * by it and every shard holds a copy of it. The source document is left as it
+ * is.
+ */
+public class ShardedDesignWriter implements CombinatorialDesignSink {
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private final File file;
+	private final String label;
+	private final int maxDesigns;
+	private final long maxBytes;
+	private final Manifest manifest;
+	private final String fileType;
+	private final Activity activity;
+
+	private SBOLDocument shard = null;
+	private final List<URI> shardDesigns = new ArrayList<>();
+	private long shardBytes = 0;
+	private int shardCount = 0;
+
+	// bytes written to and estimated for the shards so far, which scale the
+	// estimate of the current shard to what it will take up on disk
+	private long writtenBytes = 0;
+	private long estimatedBytes = 0;
+
+	/**
+	 * Writes every design into file itself, as a single shard.
+	 */
+	public ShardedDesignWriter(File file, Activity activity) {
+		this(file, null, Integer.MAX_VALUE, Long.MAX_VALUE, null, activity);
+	}
+
+	/**
+	 * Writes shards next to file, named after it followed by label (if any)
+	 * and the number of the shard.
+	 */
+	public ShardedDesignWriter(File file, String label, int maxDesigns, long maxBytes, Manifest manifest,
+			Activity activity) {
+		this.file = file;
+		this.label = label;
+		this.maxDesigns = maxDesigns;
+		this.maxBytes = maxBytes;
+		this.manifest = manifest;
+		this.fileType = getFileType(file.getName());
+		this.activity = activity;
+	}
+
+	@Override
+	public void accept(SBOLDocument doc, ComponentDefinition design)
+			throws SBOLValidationException, SBOLConversionException, IOException {
+		if (shard == null) {
+			shard = new SBOLDocument();
+			shard.setDefaultURIprefix(doc.getDefaultURIprefix());
+			if (activity != null) {
+				shard.createCopy(activity);
+			}
+		}
+
+		doc.createRecursiveCopy(shard, design);
+		if (activity != null) {
+			shard.getComponentDefinition(design.getIdentity()).addWasGeneratedBy(activity.getIdentity());
+		}
+		shardDesigns.add(design.getIdentity());
+		shardBytes += CombinatorialCardinality.estimateBytes(design);
+
+		if (shardDesigns.size() >= maxDesigns || scaledShardBytes() >= maxBytes) {
+			writeShard();
+		}
+	}
+
+	@Override
+	public void close() throws SBOLConversionException, IOException {
+		writeShard();
+	}
+
+	private void writeShard() throws SBOLConversionException, IOException {
+		if (shard == null) {
+			return;
+		}
+
+		writtenBytes += write(shard, shardDesigns);
+		estimatedBytes += shardBytes;
+
+		shard = null;
+		shardDesigns.clear();
+		shardBytes = 0;
+	}
+
+	private long scaledShardBytes() {
+		if (estimatedBytes == 0) {
+			return shardBytes;
+		}
+		return (long) (shardBytes * ((double) writtenBytes / estimatedBytes));
+	}
+
+	/**
+	 * Writes doc, which holds designs, to the next shard file and returns the
+	 * number of bytes written. If that is more than maxBytes, the file is
+	 * replaced by two shards holding half of designs each.
+	 */
+	private long write(SBOLDocument doc, List<URI> designs) throws SBOLConversionException, IOException {
+		File shardFile = getShardFile(++shardCount);
+		CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(shardFile));
+		try (OutputStream out = new BufferedOutputStream(CompressionUtil.compress(shardFile.getName(), counter))) {
+			SBOLWriter.write(doc, out, fileType);
+		}
+
+		// a single file can't be split, and neither can a single design
+		if (counter.getCount() <= maxBytes || manifest == null || designs.size() < 2) {
+			if (manifest != null) {
+				manifest.add(shardFile, designs);
+			}
+			return counter.getCount();
+		}
+
+		shardCount--;
+		if (!shardFile.delete()) {
+			throw new IOException("Could not replace the oversized shard " + shardFile);
+		}
+		List<URI> first = designs.subList(0, designs.size() / 2);
+		List<URI> second = designs.subList(designs.size() / 2, designs.size());
+		return write(copy(doc, first), first) + write(copy(doc, second), second);
+	}
+
+	/**
+	 * Returns a new document holding designs of doc and what they refer to.
+	 */
+	private SBOLDocument copy(SBOLDocument doc, List<URI> designs) throws IOException {
+		SBOLDocument copy = new SBOLDocument();
+		copy.setDefaultURIprefix(doc.getDefaultURIprefix());
+		try {
+			for (URI design : designs) {
+				doc.createRecursiveCopy(copy, doc.getComponentDefinition(design));
+			}
+			if (activity != null && copy.getActivity(activity.getIdentity()) == null) {
+				copy.createCopy(activity);
+			}
+		} catch (SBOLValidationException e) {
+			// the designs were valid in doc, so this shouldn't happen
+			throw new IOException(e);
+		}
+		return copy;
+	}
+
+	private File getShardFile(int number) {
+		if (manifest == null) {
+			return file;
+		}
+
+		String name = file.getName();
+		String stem = getStem(name);
+		String extension = stem.length() == name.length() ? ".xml" : name.substring(stem.length());
+		String shardName = stem + (label == null ? "" : "_" + label) + String.format("_%04d", number) + extension;
+		return new File(file.getParentFile(), shardName);
+	}
+
+	/**
+	 * Returns fileName without its format extension and, if it is compressed,
+	 * the compression extension, e.g. "lib.a" for "lib.a.xml.gz".
+	 */
+	private static String getStem(String fileName) {
+		String name = CompressionUtil.getUncompressedName(fileName);
+		int dot = name.lastIndexOf('.');
+		return dot <= 0 ? name : name.substring(0, dot);
+	}
+
+	private static String getFileType(String fileName) {
+		String name = CompressionUtil.getUncompressedName(fileName).toLowerCase();
+		if (name.endsWith(".gb") || name.endsWith(".gbk")) {
+			return SBOLDocument.GENBANK;
+		}
+		if (name.endsWith(".fasta") || name.endsWith(".fa")) {
+			return SBOLDocument.FASTAformat;
+		}
+		return SBOLDocument.RDF;
+	}
+
+	/**
+	 * A tab separated index of design URIs and the shard file each of them was
+	 * written to. Shards written by several writers at once can share one
+	 * Manifest.
+	 */
+	public static class Manifest implements Closeable {
+		private final File file;
+		private final BufferedWriter writer;
+
+		/**
+		 * Creates the manifest next to libraryFile.
+		 */
+		public Manifest(File libraryFile) throws IOException {
+			String stem = getStem(libraryFile.getName());
+			this.file = new File(libraryFile.getParentFile(), stem + "_manifest.tsv");
+			this.writer = new BufferedWriter(new FileWriter(file));
+			writer.write("design\tshard");
+			writer.newLine();
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		synchronized void add(File shardFile, List<URI> designs) throws IOException {
+			for (URI design : designs) {
+				writer.write(design.toString());
+				writer.write('\t');
+				writer.write(shardFile.getName());
+				writer.newLine();
+			}
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor;
+
+import java.awt.Component;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidate;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.Sequence;
+import org.sbolstandard.core2.TopLevel;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+import edu.utah.ece.async.sboldesigner.sbol.SequenceRope;
+import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
+import edu.utah.ece.async.sboldesigner.sbol.editor.event.DesignChangedEvent;
+
+/**
+ * Checks loaded documents against the best practices in the background, so a
+ * design is shown before its validation finishes. Problems are reported in a
+ * dialog that doesn't block the editor. Only the problems of the document that
+ * was loaded last are reported.
+ * <p>
+ * After the document is loaded, only the TopLevels named by each
+ * {@link DesignChangedEvent} are validated again, together with the TopLevels
+ * they reference directly. Results are cached with a copy of that content,
+ * so an edit that is undone or repeated isn't validated twice. A hash of the
+ * content tells most changes apart quickly; a match is confirmed against the
+ * copy.
+ */
+class DesignValidator {
+	// SBOLValidate keeps its errors in a static list, so one at a time
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Design validator");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Component parent;
+	private final SBOLDesign design;
+	// incremented for every document, so stale results are dropped
+	private volatile int generation = 0;
+	// the latest result for each validated TopLevel, only used on the EDT
+	private final Map<URI, Result> results = new HashMap<>();
+	// problems that were shown already, only used on the EDT
+	private final Set<String> reported = new HashSet<>();
+
+	DesignValidator(Component parent, SBOLDesign design, EventBus eventBus) {
+		this.parent = parent;
+		this.design = design;
+		eventBus.register(this);
+	}
+
+	/**
+	 * Validates doc in the background. doc must not be changed afterwards,
+	 * so callers pass a copy of the document that is edited.
+	 */
+	void validate(SBOLDocument doc) {
+		int current = reset();
+		EXECUTOR.execute(() -> {
+			if (current != generation) {
+				return;
+			}
+			SBOLValidate.clearErrors();
+			SBOLValidate.validateSBOL(doc, false, false, true);
+			report(current, new ArrayList<>(SBOLValidate.getErrors()));
+		});
+	}
+
+	/**
+	 * Reports that doc couldn't even be copied for validation.
+	 */
+	void copyFailed(SBOLValidationException e) {
+		List<String> errors = new ArrayList<>();
+		errors.add(e.getMessage());
+		report(reset(), errors);
+	}
+
+	private int reset() {
+		results.clear();
+		reported.clear();
+		return ++generation;
+	}
+
+	private void report(int current, List<String> errors) {
+		if (errors.isEmpty()) {
+			return;
+		}
+		SwingUtilities.invokeLater(() -> {
+			if (current == generation) {
+				reported.addAll(errors);
+				MessageDialog.showNonModalMessage(parent, "Beware, this file isn't following best practice",
+						errors);
+			}
+		});
+	}
+
+	@Subscribe
+	public void designChanged(DesignChangedEvent event) {
+		if (event.getDesign() != design) {
+			return;
+		}
+
+		List<Result> pending = new ArrayList<>();
+		for (TopLevel topLevel : event.getChangedTopLevels()) {
+			List<TopLevel> references = getReferences(topLevel);
+			long hash = contentHash(topLevel, references);
+			Result cached = results.get(topLevel.getIdentity());
+			if (cached != null && cached.matches(hash, topLevel, references)) {
+				continue;
+			}
+			if (cached != null && cached.errors != null) {
+				// the old problems may come back and should be shown again
+				reported.removeAll(cached.errors);
+			}
+
+			// the copy is made here as the design can't be read from the
+			// validator thread
+			Result result = new Result(topLevel.getIdentity(), hash);
+			try {
+				result.doc = copy(topLevel, references);
+				result.content = getContent(result.doc, topLevel, references);
+			} catch (SBOLValidationException e) {
+				List<String> errors = new ArrayList<>();
+				errors.add(e.getMessage());
+				result.errors = errors;
+			}
+			results.put(result.uri, result);
+			pending.add(result);
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		int current = generation;
+		EXECUTOR.execute(() -> {
+			for (Result result : pending) {
+				if (current != generation) {
+					return;
+				}
+				if (result.doc != null) {
+					SBOLValidate.clearErrors();
+					SBOLValidate.validateSBOL(result.doc, false, false, true);
+					result.errors = new ArrayList<>(SBOLValidate.getErrors());
+					result.doc = null;
+				}
+			}
+			SwingUtilities.invokeLater(() -> reportChanges(current, pending));
+		});
+	}
+
+	private void reportChanges(int current, List<Result> pending) {
+		if (current != generation) {
+			return;
+		}
+		List<String> errors = new ArrayList<>();
+		for (Result result : pending) {
+			// a later edit replaced this result
+			if (results.get(result.uri) != result) {
+				continue;
+			}
+			for (String error : result.errors) {
+				if (reported.add(error)) {
+					errors.add(error);
+				}
+			}
+		}
+		if (!errors.isEmpty()) {
+			MessageDialog.showNonModalMessage(parent, "Beware, this edit isn't following best practice", errors);
+		}
+	}
+
+	/**
+	 * The TopLevels that topLevel references directly.
+	 */
+	private static List<TopLevel> getReferences(TopLevel topLevel) {
+		List<TopLevel> references = new ArrayList<>();
+		if (topLevel instanceof ComponentDefinition) {
+			ComponentDefinition cd = (ComponentDefinition) topLevel;
+			for (Sequence sequence : cd.getSequences()) {
+				references.add(sequence);
+			}
+			for (org.sbolstandard.core2.Component component : cd.getComponents()) {
+				ComponentDefinition definition = component.getDefinition();
+				if (definition != null) {
+					references.add(definition);
+				}
+			}
+		}
+		return references;
+	}
+
+	private static long contentHash(TopLevel topLevel, List<TopLevel> references) {
+		long hash = contentHash(topLevel);
+		for (TopLevel reference : references) {
+			hash = 31 * hash + contentHash(reference);
+		}
+		return hash;
+	}
+
+	private static long contentHash(TopLevel topLevel) {
+		if (topLevel instanceof Sequence) {
+			// the hash of the rope is kept between edits, while hashCode
+			// would go through all the elements
+			Sequence sequence = (Sequence) topLevel;
+			return 31L * Objects.hash(sequence.getIdentity(), sequence.getEncoding())
+					+ SequenceRope.of(sequence).contentHash();
+		}
+		return topLevel.hashCode();
+	}
+
+	/**
+	 * The copies of topLevel and references in doc, in the same order.
+	 */
+	private static List<TopLevel> getContent(SBOLDocument doc, TopLevel topLevel, List<TopLevel> references) {
+		List<TopLevel> content = new ArrayList<>();
+		content.add(doc.getTopLevel(topLevel.getIdentity()));
+		for (TopLevel reference : references) {
+			content.add(doc.getTopLevel(reference.getIdentity()));
+		}
+		return content;
+	}
+
+	private static SBOLDocument copy(TopLevel topLevel, List<TopLevel> references) throws SBOLValidationException {
+		SBOLDocument doc = new SBOLDocument();
+		doc.createCopy(topLevel);
+		for (TopLevel reference : references) {
+			if (doc.getTopLevel(reference.getIdentity()) == null) {
+				doc.createCopy(reference);
+			}
+		}
+		return doc;
+	}
+
+	private static class Result {
+		final URI uri;
+		final long hash;
+		// the TopLevel and its references, until validated
+		SBOLDocument doc;
+		// copies of the TopLevel and its references as they were validated,
+		// null if they couldn't be copied
+		List<TopLevel> content;
+		// null until validated
+		volatile List<String> errors;
+
+		Result(URI uri, long hash) {
+			this.uri = uri;
+			this.hash = hash;
+		}
+
+		/**
+		 * Whether this is the result for topLevel and references as they are
+		 * now.
+		 */
+		boolean matches(long hash, TopLevel topLevel, List<TopLevel> references) {
+			if (this.hash != hash || content == null || content.size() != references.size() + 1
+					|| !content.get(0).equals(topLevel)) {
+				return false;
+			}
+			for (int i = 0; i < references.size(); i++) {
+				if (!content.get(i + 1).equals(references.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -20,8 +20,11 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Toolkit;
+import java.awt.Transparency;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.ClipboardOwner;
 import java.awt.datatransfer.DataFlavor;
@@ -136,6 +139,29 @@ public class Images {
 		return bufferedImage;
 	}
 
+	/**
+	 * Copies image into a translucent image in the format of the screen, so it
+	 * can be drawn without conversion.
+	 */
+	public static BufferedImage toCompatibleImage(Image image) {
+		if (image == null) {
+			return null;
+		}
+		if (GraphicsEnvironment.isHeadless()) {
+			return toBufferedImage(image);
+		}
+
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+				.getDefaultConfiguration();
+		BufferedImage compatibleImage = gc.createCompatibleImage(image.getWidth(null), image.getHeight(null),
+				Transparency.TRANSLUCENT);
+		Graphics2D g2 = compatibleImage.createGraphics();
+		g2.drawImage(image, 0, 0, null);
+		g2.dispose();
+
+		return compatibleImage;
+	}
+
 	public static BufferedImage flipVertical(Image image) {
 		AffineTransform tx = AffineTransform.getScaleInstance(1, -1);
 		tx.translate(0, -image.getHeight(null));
@@ -15,6 +15,7 @@
 
 package edu.utah.ece.async.sboldesigner.sbol.editor;
 
+import java.awt.Color;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.net.URI;
@@ -63,6 +64,11 @@ public class Part {
 	private final List<URI> roles;
 	private final Image largeImage;
 	private final Image smallImage;
+	/**
+	 * The variants of largeImage returned by getImage and getSelectedImage,
+	 * rendered on first use. See glyphIndex.
+	 */
+	private final Image[] glyphs = new Image[32];
 
 	public Part(String name, String displayId) {
 		this(name, displayId, null, null, new URI[0]);
@@ -107,6 +113,38 @@ public class Part {
 	 * Returns the image for the part that can be used in the SBOL design.
 	 */
 	public Image getImage(OrientationType orientation, boolean composite, boolean hasVariants, boolean hasSequence) {
+		return getGlyph(orientation, composite, hasVariants, hasSequence, false);
+	}
+
+	/**
+	 * Same as getImage, with a border that marks the part as selected.
+	 */
+	public Image getSelectedImage(OrientationType orientation, boolean composite, boolean hasVariants,
+			boolean hasSequence) {
+		return getGlyph(orientation, composite, hasVariants, hasSequence, true);
+	}
+
+	private synchronized Image getGlyph(OrientationType orientation, boolean composite, boolean hasVariants,
+			boolean hasSequence, boolean selected) {
+		int index = glyphIndex(orientation, composite, hasVariants, hasSequence, selected);
+		if (glyphs[index] == null) {
+			Image image = selected
+					? Images.createBorderedImage(getGlyph(orientation, composite, hasVariants, hasSequence, false),
+							Color.LIGHT_GRAY)
+					: renderImage(orientation, composite, hasVariants, hasSequence);
+			glyphs[index] = Images.toCompatibleImage(image);
+		}
+		return glyphs[index];
+	}
+
+	private static int glyphIndex(OrientationType orientation, boolean composite, boolean hasVariants,
+			boolean hasSequence, boolean selected) {
+		return (orientation == OrientationType.REVERSECOMPLEMENT ? 1 : 0) | (composite ? 2 : 0)
+				| (hasVariants ? 4 : 0) | (hasSequence ? 8 : 0) | (selected ? 16 : 0);
+	}
+
+	private Image renderImage(OrientationType orientation, boolean composite, boolean hasVariants,
+			boolean hasSequence) {
 		Image image = this.largeImage;
 
 		if (orientation == OrientationType.REVERSECOMPLEMENT) {
@@ -114,26 +152,33 @@ public class Part {
 		}
 
 		if (composite) {
-			BufferedImage scaledCompositeOverlay = Images
-					.toBufferedImage(Images.scaleImageToWidth(Images.getPartImage("composite-overlay.png"), IMG_WIDTH));
-			image = Images.overlay(image, scaledCompositeOverlay, IMG_WIDTH, IMG_HEIGHT);
+			image = Images.overlay(image, Overlays.COMPOSITE, IMG_WIDTH, IMG_HEIGHT);
 		}
 
 		if (hasVariants) {
-			BufferedImage scaledVariantOverlay = Images
-					.toBufferedImage(Images.scaleImageToWidth(Images.getPartImage("variant-overlay.png"), IMG_WIDTH));
-			image = Images.overlay(image, scaledVariantOverlay, IMG_WIDTH, IMG_HEIGHT);
+			image = Images.overlay(image, Overlays.VARIANT, IMG_WIDTH, IMG_HEIGHT);
 		} else {
 			if (!hasSequence) {
-				BufferedImage scaledWarningOverlay = Images.toBufferedImage(
-						Images.scaleImageToWidth(Images.getPartImage("error-advice-sign-overlay.png"), IMG_WIDTH));
-				image = Images.overlay(image, scaledWarningOverlay, IMG_WIDTH, IMG_HEIGHT);
+				image = Images.overlay(image, Overlays.WARNING, IMG_WIDTH, IMG_HEIGHT);
 			}
 		}
 
 		return image;
 	}
 
+	/**
+	 * The overlays of getImage, loaded when first needed.
+	 */
+	private static class Overlays {
+		private static final BufferedImage COMPOSITE = load("composite-overlay.png");
+		private static final BufferedImage VARIANT = load("variant-overlay.png");
+		private static final BufferedImage WARNING = load("error-advice-sign-overlay.png");
+
+		private static BufferedImage load(String fileName) {
+			return Images.toBufferedImage(Images.scaleImageToWidth(Images.getPartImage(fileName), IMG_WIDTH));
+		}
+	}
+
 	/**
 	 * Returns the largeImage for the part with extra empty space cropped which
 	 * makes it suitable to be used in a toolbar, button, etc.
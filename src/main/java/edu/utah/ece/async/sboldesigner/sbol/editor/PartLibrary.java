@@ -0,0 +1,652 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLReader;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.Sequence;
+import org.synbiohub.frontend.IdentifiedMetadata;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import edu.utah.ece.async.sboldesigner.sbol.CompressionUtil;
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
+
+/**
+ * A registry made of a directory of SBOL files. The parts of all the files
+ * are indexed by role, type, collection, sequence and the words of their
+ * display id, name and description, so searching doesn't have to read any
+ * file. Only the file of the part that is picked is read.
+ * 
+ * The index is stored in ~/.sboldesigner/cache/libraries. Whenever the
+ * library is searched, the files that were added or changed since are parsed
+ * (their bytes are read in parallel) and the ones that were removed are
+ * dropped from the index.
+ * 
+ * A part may be defined by several files. Its URI is listed once, and it stays
+ * in the library until the last file defining it is gone.
+ */
+public class PartLibrary {
+	private static final int MAGIC = 0x53424c49;
+	private static final int FORMAT_VERSION = 1;
+
+	private static final File DIRECTORY = new File(System.getProperty("user.home"),
+			".sboldesigner" + File.separator + "cache" + File.separator + "libraries");
+
+	private static final Set<String> EXTENSIONS = new HashSet<>(
+			Arrays.asList("xml", "rdf", "sbol", "gb", "gbk", "fasta"));
+
+	private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^\\p{Alnum}]+");
+
+	private static final ConcurrentMap<String, PartLibrary> libraries = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the library of directory.
+	 */
+	public static PartLibrary get(String directory) throws IOException {
+		String path = new File(directory).getCanonicalPath();
+		return libraries.computeIfAbsent(path, PartLibrary::new);
+	}
+
+	/**
+	 * Returns whether location is a directory that can be used as a library.
+	 */
+	public static boolean isLibrary(String location) {
+		return new File(location).isDirectory();
+	}
+
+	private final File root;
+	private final File indexFile;
+
+	// path -> the parts of the file, null until loaded
+	private Map<String, IndexedFile> files = null;
+
+	// URI -> the copies of the part, one per file defining it
+	private final Map<String, List<IndexedPart>> byUri = new HashMap<>();
+	// the copies with each role, type, ... so removing a file only removes
+	// what its copies brought
+	private final Map<URI, Set<IndexedPart>> byRole = new HashMap<>();
+	private final Map<URI, Set<IndexedPart>> byType = new HashMap<>();
+	private final Map<URI, Set<IndexedPart>> byCollection = new HashMap<>();
+	private final Map<String, Set<IndexedPart>> bySequence = new HashMap<>();
+	private final Map<String, Set<IndexedPart>> byWord = new HashMap<>();
+
+	private PartLibrary(String path) {
+		this.root = new File(path);
+		this.indexFile = new File(DIRECTORY, hash(path));
+	}
+
+	/**
+	 * Returns the parts with the role of part and of type whose display id,
+	 * name or description contains filterText. part and filterText may be
+	 * null.
+	 */
+	public synchronized List<IndexedPart> search(Part part, Types type, String filterText) throws IOException {
+		refresh();
+
+		Set<String> result = null;
+		if (part != null && part.getRoles() != null && !part.getRoles().isEmpty()) {
+			result = getOfRole(part.getRole());
+		}
+		if (type != null && type != Types.All_types) {
+			URI uri = SBOLUtils.convertTypesToSet(type).iterator().next();
+			result = intersect(result, getUris(byType.get(uri)));
+		}
+		if (filterText != null && !filterText.isEmpty()) {
+			result = intersect(result, getOfText(filterText.toLowerCase(Locale.ROOT)));
+		}
+
+		return getParts(result == null ? byUri.keySet() : result);
+	}
+
+	/**
+	 * Returns the parts in collection.
+	 */
+	public synchronized List<IndexedPart> getParts(URI collection) throws IOException {
+		refresh();
+		return getParts(getUris(byCollection.get(collection)));
+	}
+
+	/**
+	 * Returns the parts whose sequence is elements.
+	 */
+	public synchronized List<IndexedPart> getPartsWithSequence(String elements) throws IOException {
+		refresh();
+		return getParts(getUris(bySequence.get(hash(elements.toLowerCase(Locale.ROOT)))));
+	}
+
+	/**
+	 * Returns a document with the part and everything it references, read from
+	 * the file the part is in.
+	 */
+	public SBOLDocument getDocument(URI uri) throws SBOLValidationException, IOException, SBOLConversionException {
+		List<IndexedPart> copies;
+		synchronized (this) {
+			refresh();
+			copies = new ArrayList<>(byUri.getOrDefault(uri.toString(), Collections.<IndexedPart> emptyList()));
+		}
+		if (copies.isEmpty()) {
+			throw new IOException(uri + " isn't in " + root);
+		}
+
+		// the first file that still has the part, in case it changed since
+		for (IndexedPart part : copies) {
+			// not kept in RegistryDocuments, only one part of it is needed
+			SBOLDocument doc = read(new File(part.file));
+			ComponentDefinition cd = doc.getComponentDefinition(uri);
+			if (cd != null) {
+				return new SBOLDocument().createRecursiveCopy(cd);
+			}
+		}
+		throw new IOException(uri + " isn't in " + copies.get(0).file);
+	}
+
+	/**
+	 * The first copy of each of uris.
+	 */
+	private List<IndexedPart> getParts(Set<String> uris) {
+		List<IndexedPart> parts = new ArrayList<>(uris.size());
+		for (String uri : uris) {
+			parts.add(byUri.get(uri).get(0));
+		}
+		return parts;
+	}
+
+	private static Set<String> getUris(Set<IndexedPart> parts) {
+		Set<String> uris = new LinkedHashSet<>();
+		if (parts != null) {
+			for (IndexedPart part : parts) {
+				uris.add(part.uri);
+			}
+		}
+		return uris;
+	}
+
+	private Set<String> getOfRole(URI parent) {
+		// there are far fewer distinct roles than parts
+		Set<String> result = new LinkedHashSet<>();
+		for (Map.Entry<URI, Set<IndexedPart>> entry : byRole.entrySet()) {
+			if (SequenceOntologyIndex.INSTANCE.isAnyDescendantOrSelf(Collections.singleton(entry.getKey()),
+					parent)) {
+				result.addAll(getUris(entry.getValue()));
+			}
+		}
+		return result;
+	}
+
+	private Set<String> getOfText(String filter) {
+		Set<String> result = new LinkedHashSet<>();
+		for (Map.Entry<String, Set<IndexedPart>> entry : byWord.entrySet()) {
+			if (entry.getKey().contains(filter)) {
+				result.addAll(getUris(entry.getValue()));
+			}
+		}
+
+		// words are split at anything but letters and digits, so such a
+		// filter may span several words
+		if (NOT_ALPHANUMERIC.matcher(filter).find()) {
+			for (List<IndexedPart> copies : byUri.values()) {
+				for (IndexedPart part : copies) {
+					if (part.contains(filter)) {
+						result.add(part.uri);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static Set<String> intersect(Set<String> a, Set<String> b) {
+		if (a == null) {
+			return new LinkedHashSet<>(b);
+		}
+		a.retainAll(b);
+		return a;
+	}
+
+	/**
+	 * Brings the index up to date with the files in the library.
+	 */
+	private void refresh() throws IOException {
+		if (files == null) {
+			files = load();
+			for (IndexedFile file : files.values()) {
+				add(file);
+			}
+		}
+
+		Map<String, File> found = new HashMap<>();
+		list(root, found);
+
+		List<File> changed = new ArrayList<>();
+		for (File file : found.values()) {
+			IndexedFile indexed = files.get(file.getPath());
+			if (indexed == null || indexed.modified != file.lastModified() || indexed.length != file.length()) {
+				changed.add(file);
+			}
+		}
+		Set<String> removed = new HashSet<>(files.keySet());
+		removed.removeAll(found.keySet());
+
+		if (changed.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+
+		for (String path : removed) {
+			remove(files.remove(path));
+		}
+		for (IndexedFile file : parse(changed)) {
+			IndexedFile old = files.put(file.path, file);
+			if (old != null) {
+				remove(old);
+			}
+			add(file);
+		}
+		save();
+	}
+
+	private static void list(File directory, Map<String, File> found) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				list(child, found);
+			} else {
+				String name = CompressionUtil.getUncompressedName(child.getName());
+				String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+				if (EXTENSIONS.contains(extension)) {
+					found.put(child.getPath(), child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses files, reading them in parallel. Files that can't be parsed are
+	 * indexed without parts, so they aren't tried again until they change.
+	 */
+	private static List<IndexedFile> parse(List<File> files) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			List<Future<IndexedFile>> futures = new ArrayList<>();
+			for (File file : files) {
+				futures.add(executor.submit(() -> parse(file)));
+			}
+
+			List<IndexedFile> result = new ArrayList<>();
+			for (Future<IndexedFile> future : futures) {
+				try {
+					result.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IOException(e.getCause());
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static IndexedFile parse(File file) {
+		IndexedFile indexed = new IndexedFile(file.getPath(), file.lastModified(), file.length());
+		SBOLDocument doc;
+		try {
+			// not kept in RegistryDocuments, the library may not fit in memory
+			doc = read(file);
+		} catch (Exception e) {
+			// files that can't be parsed are left out of the library
+			e.printStackTrace();
+			return indexed;
+		}
+
+		Map<URI, Set<URI>> collections = new HashMap<>();
+		for (Collection collection : doc.getCollections()) {
+			for (URI member : collection.getMemberURIs()) {
+				collections.computeIfAbsent(member, m -> new HashSet<>()).add(collection.getIdentity());
+			}
+		}
+
+		for (ComponentDefinition cd : doc.getComponentDefinitions()) {
+			IndexedPart part = new IndexedPart();
+			part.file = indexed.path;
+			part.uri = cd.getIdentity().toString();
+			part.displayId = cd.getDisplayId();
+			part.name = cd.getName();
+			part.version = cd.getVersion();
+			part.description = cd.getDescription();
+			part.roles.addAll(cd.getRoles());
+			part.types.addAll(cd.getTypes());
+			part.collections.addAll(collections.getOrDefault(cd.getIdentity(), Collections.<URI> emptySet()));
+			part.wasDerivedFroms.addAll(cd.getWasDerivedFroms());
+			part.sequenceHash = hashSequences(cd);
+			indexed.parts.add(part);
+		}
+		return indexed;
+	}
+
+	/**
+	 * Reads file. Only the bytes are read in parallel, SBOLReader keeps its
+	 * settings in static fields.
+	 */
+	private static SBOLDocument read(File file) throws SBOLValidationException, IOException, SBOLConversionException {
+		byte[] bytes;
+		try (InputStream in = CompressionUtil.decompress(file.getName(),
+				new BufferedInputStream(new FileInputStream(file)))) {
+			bytes = ByteStreams.toByteArray(in);
+		}
+		synchronized (SBOLUtils.READER_LOCK) {
+			SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
+			SBOLReader.setCompliant(true);
+			return SBOLReader.read(new ByteArrayInputStream(bytes));
+		}
+	}
+
+	private static String hashSequences(ComponentDefinition cd) {
+		if (cd.getSequences().isEmpty()) {
+			return null;
+		}
+		// sorted, so the hash doesn't depend on the order of the set
+		TreeSet<String> elements = new TreeSet<>();
+		for (Sequence sequence : cd.getSequences()) {
+			elements.add(sequence.getElements().toLowerCase(Locale.ROOT));
+		}
+		return hash(String.join("\n", elements));
+	}
+
+	private void add(IndexedFile file) {
+		for (IndexedPart part : file.parts) {
+			byUri.computeIfAbsent(part.uri, u -> new ArrayList<>()).add(part);
+			for (URI role : part.roles) {
+				byRole.computeIfAbsent(role, r -> new HashSet<>()).add(part);
+			}
+			for (URI type : part.types) {
+				byType.computeIfAbsent(type, t -> new HashSet<>()).add(part);
+			}
+			for (URI collection : part.collections) {
+				byCollection.computeIfAbsent(collection, c -> new HashSet<>()).add(part);
+			}
+			if (part.sequenceHash != null) {
+				bySequence.computeIfAbsent(part.sequenceHash, s -> new HashSet<>()).add(part);
+			}
+			for (String word : part.getWords()) {
+				byWord.computeIfAbsent(word, w -> new HashSet<>()).add(part);
+			}
+		}
+	}
+
+	private void remove(IndexedFile file) {
+		for (IndexedPart part : file.parts) {
+			List<IndexedPart> copies = byUri.get(part.uri);
+			if (copies != null) {
+				copies.remove(part);
+				if (copies.isEmpty()) {
+					byUri.remove(part.uri);
+				}
+			}
+			for (URI role : part.roles) {
+				removeFrom(byRole, role, part);
+			}
+			for (URI type : part.types) {
+				removeFrom(byType, type, part);
+			}
+			for (URI collection : part.collections) {
+				removeFrom(byCollection, collection, part);
+			}
+			if (part.sequenceHash != null) {
+				removeFrom(bySequence, part.sequenceHash, part);
+			}
+			for (String word : part.getWords()) {
+				removeFrom(byWord, word, part);
+			}
+		}
+	}
+
+	private static <K> void removeFrom(Map<K, Set<IndexedPart>> index, K key, IndexedPart part) {
+		Set<IndexedPart> parts = index.get(key);
+		if (parts != null) {
+			parts.remove(part);
+			if (parts.isEmpty()) {
+				index.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * A part of the library, as stored in the index.
+	 */
+	public static class IndexedPart {
+		private String file;
+		private String uri;
+		private String displayId;
+		private String name;
+		private String version;
+		private String description;
+		private final List<URI> roles = new ArrayList<>();
+		private final List<URI> types = new ArrayList<>();
+		private final List<URI> collections = new ArrayList<>();
+		private final List<URI> wasDerivedFroms = new ArrayList<>();
+		private String sequenceHash;
+
+		public String getUri() {
+			return uri;
+		}
+
+		public List<URI> getWasDerivedFroms() {
+			return wasDerivedFroms;
+		}
+
+		public IdentifiedMetadata toMetadata() {
+			IdentifiedMetadata meta = new IdentifiedMetadata();
+			meta.setUri(uri);
+			meta.setDisplayId(displayId);
+			meta.setName(name);
+			meta.setVersion(version);
+			meta.setDescription(description);
+			meta.setType("ComponentDefinition");
+			return meta;
+		}
+
+		private Set<String> getWords() {
+			Set<String> words = new HashSet<>();
+			for (String s : new String[] { displayId, name, description }) {
+				if (s != null) {
+					for (String word : NOT_ALPHANUMERIC.split(s.toLowerCase(Locale.ROOT))) {
+						if (!word.isEmpty()) {
+							words.add(word);
+						}
+					}
+				}
+			}
+			return words;
+		}
+
+		private boolean contains(String filter) {
+			return (displayId != null && displayId.toLowerCase(Locale.ROOT).contains(filter))
+					|| (name != null && name.toLowerCase(Locale.ROOT).contains(filter))
+					|| (description != null && description.toLowerCase(Locale.ROOT).contains(filter));
+		}
+	}
+
+	private static class IndexedFile {
+		private final String path;
+		private final long modified;
+		private final long length;
+		private final List<IndexedPart> parts = new ArrayList<>();
+
+		private IndexedFile(String path, long modified, long length) {
+			this.path = path;
+			this.modified = modified;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Reads the stored index, or returns an empty one if there is none.
+	 */
+	private Map<String, IndexedFile> load() {
+		Map<String, IndexedFile> result = new HashMap<>();
+		if (!indexFile.isFile()) {
+			return result;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !root.getPath().equals(readString(in))) {
+				return result;
+			}
+			int fileCount = in.readInt();
+			for (int i = 0; i < fileCount; i++) {
+				IndexedFile file = new IndexedFile(readString(in), in.readLong(), in.readLong());
+				int partCount = in.readInt();
+				for (int j = 0; j < partCount; j++) {
+					IndexedPart part = new IndexedPart();
+					part.file = file.path;
+					part.uri = readString(in);
+					part.displayId = readString(in);
+					part.name = readString(in);
+					part.version = readString(in);
+					part.description = readString(in);
+					readURIs(in, part.roles);
+					readURIs(in, part.types);
+					readURIs(in, part.collections);
+					readURIs(in, part.wasDerivedFroms);
+					part.sequenceHash = readString(in);
+					file.parts.add(part);
+				}
+				result.put(file.path, file);
+			}
+			return result;
+		} catch (IOException e) {
+			// a broken index is rebuilt
+			e.printStackTrace();
+			return new HashMap<>();
+		}
+	}
+
+	private void save() {
+		File temp = null;
+		try {
+			DIRECTORY.mkdirs();
+			temp = File.createTempFile("library", ".tmp", DIRECTORY);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				writeString(out, root.getPath());
+				out.writeInt(files.size());
+				for (IndexedFile file : files.values()) {
+					writeString(out, file.path);
+					out.writeLong(file.modified);
+					out.writeLong(file.length);
+					out.writeInt(file.parts.size());
+					for (IndexedPart part : file.parts) {
+						writeString(out, part.uri);
+						writeString(out, part.displayId);
+						writeString(out, part.name);
+						writeString(out, part.version);
+						writeString(out, part.description);
+						writeURIs(out, part.roles);
+						writeURIs(out, part.types);
+						writeURIs(out, part.collections);
+						writeURIs(out, part.wasDerivedFroms);
+						writeString(out, part.sequenceHash);
+					}
+				}
+			}
+			Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// the files are parsed again next time
+			e.printStackTrace();
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	private static void writeURIs(DataOutputStream out, List<URI> uris) throws IOException {
+		out.writeInt(uris.size());
+		for (URI uri : uris) {
+			writeString(out, uri.toString());
+		}
+	}
+
+	private static void readURIs(DataInputStream in, List<URI> uris) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			uris.add(URI.create(readString(in)));
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String hash(String s) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return BaseEncoding.base16().lowerCase().encode(digest.digest(s.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -19,6 +19,8 @@ import java.net.URI;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.sbolstandard.core2.Component;
 import org.sbolstandard.core2.ComponentDefinition;
@@ -29,6 +31,7 @@ import org.sbolstandard.core2.SequenceOntology;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Part.ImageType;
 
 public class Parts {
@@ -39,6 +42,9 @@ public class Parts {
 
 	private static final List<Part> PARTS_LIST = Lists.newArrayList();
 
+	// the results of forRole, including the roles without a part
+	private static final Map<URI, Optional<Part>> PARTS_FOR_ROLE = new ConcurrentHashMap<>();
+
 	// unspecified part is for parts without roles that get opened
 	public static final Part UNSPECIFIED = createPart("Unspecified", "IDK", "unspecified.png",
 			ImageType.TALL_OVER_BASELINE, new String[0]);
@@ -107,7 +113,7 @@ public class Parts {
 	private static Part createPart(String name, String displayId, String imageFileName, ImageType imageType,
 			String... soIDs) {
 		URI[] roles = new URI[soIDs.length];
-		SequenceOntology so = new SequenceOntology();
+		SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 		for (int i = 0; i < soIDs.length; i++) {
 			roles[i] = so.getURIbyId(soIDs[i]);
 		}
@@ -143,11 +149,17 @@ public class Parts {
 	 * Returns a part for the given role.
 	 */
 	public static Part forRole(URI role) {
+		if (role == null) {
+			return null;
+		}
+		return PARTS_FOR_ROLE.computeIfAbsent(role, r -> Optional.ofNullable(findPart(r))).orElse(null);
+	}
+
+	private static Part findPart(URI role) {
 		if (PARTS.get(role) != null) {
 			return PARTS.get(role);
 		}
 
-		SequenceOntology so = new SequenceOntology();
 		for (Part part : PARTS.values()) {
 			if (part == UNSPECIFIED) {
 				// UNSPECIFIED has role SequenceFeature, which all other roles
@@ -155,7 +167,7 @@ public class Parts {
 				// UNSPECIFIED if nothing else matches.
 				continue;
 			}
-			if (so.isDescendantOf(role, part.getRole())) {
+			if (SequenceOntologyIndex.INSTANCE.isDescendantOf(role, part.getRole())) {
 				return part;
 			}
 		}
@@ -63,6 +63,14 @@ public class Registry implements Serializable {
 		return !location.startsWith("http://") && !location.startsWith("https://");
 	}
 	
+	/**
+	 * Checks to see if the registry is a directory of SBOL files, see
+	 * PartLibrary.
+	 */
+	public boolean isLibrary() {
+		return isPath() && PartLibrary.isLibrary(location);
+	}
+
 	/**
 	 * Checks to see if the registry we are working on is represented by
 	 * IdentifiedMetadata.
@@ -0,0 +1,236 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLReader;
+import org.sbolstandard.core2.SBOLValidationException;
+
+import com.google.common.collect.MapMaker;
+
+import edu.utah.ece.async.sboldesigner.sbol.CompressionUtil;
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
+
+/**
+ * Keeps the parsed documents of the registries that are files, so the part
+ * picker doesn't parse the same file again whenever the role or type changes.
+ * A file is parsed again when its modification time or size changes, and the
+ * directories of the cached files are watched so changed files are dropped
+ * right away.
+ * 
+ * The documents are shared and must not be modified. Their
+ * ComponentDefinitions are indexed by role and type, see
+ * getComponentDefinitions.
+ */
+public enum RegistryDocuments {
+	INSTANCE;
+
+	private static final String BUILT_IN_PARTS = "/BuiltInParts.xml";
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+	private final ConcurrentMap<SBOLDocument, PartIndex> indexes = new MapMaker().weakKeys().makeMap();
+
+	private WatchService watcher = null;
+	private final Set<Path> watched = new HashSet<>();
+
+	/**
+	 * Returns the document of a registry that isn't a SynBioHub instance.
+	 */
+	public SBOLDocument getDocument(Registry registry)
+			throws SBOLValidationException, IOException, SBOLConversionException {
+		if (registry.equals(Registry.BUILT_IN)) {
+			return getDocument(BUILT_IN_PARTS, null);
+		}
+		return getDocument(new File(registry.getLocation()));
+	}
+
+	/**
+	 * Returns the document in file.
+	 */
+	public SBOLDocument getDocument(File file) throws SBOLValidationException, IOException, SBOLConversionException {
+		return getDocument(file.getCanonicalPath(), file);
+	}
+
+	private SBOLDocument getDocument(String key, File file)
+			throws SBOLValidationException, IOException, SBOLConversionException {
+		String uriPrefix = SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString();
+		long modified = file == null ? 0 : file.lastModified();
+		long length = file == null ? 0 : file.length();
+
+		Entry entry = entries.get(key);
+		if (entry != null && entry.isCurrent(uriPrefix, modified, length)) {
+			return entry.doc;
+		}
+
+		// parse every file only once, even if it is asked for concurrently
+		synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+			entry = entries.get(key);
+			if (entry != null && entry.isCurrent(uriPrefix, modified, length)) {
+				return entry.doc;
+			}
+
+			SBOLDocument doc;
+			synchronized (SBOLUtils.READER_LOCK) {
+				SBOLReader.setURIPrefix(uriPrefix);
+				SBOLReader.setCompliant(true);
+				doc = file == null ? SBOLReader.read(Registry.class.getResourceAsStream(key))
+						: CompressionUtil.read(file);
+			}
+			// set here as the document is shared and mustn't be changed later
+			doc.setDefaultURIprefix(uriPrefix);
+
+			entries.put(key, new Entry(doc, uriPrefix, modified, length));
+			indexes.put(doc, new PartIndex(doc));
+			if (file != null) {
+				watch(file);
+			}
+			return doc;
+		}
+	}
+
+	/**
+	 * Returns the CDs in doc with the role of part and of type, like
+	 * SBOLUtils.getCDOfRole and SBOLUtils.getCDOfType. Documents that came
+	 * from here are answered from their index.
+	 */
+	public List<ComponentDefinition> getComponentDefinitions(SBOLDocument doc, Part part, Types type) {
+		PartIndex index = indexes.get(doc);
+		if (index == null) {
+			return SBOLUtils.getCDOfType(SBOLUtils.getCDOfRole(doc, part), type);
+		}
+		return new ArrayList<>(index.get(part, type));
+	}
+
+	/**
+	 * Drops the cached documents.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	private synchronized void watch(File file) {
+		Path directory = file.getAbsoluteFile().toPath().getParent();
+		if (directory == null || watched.contains(directory)) {
+			return;
+		}
+
+		try {
+			if (watcher == null) {
+				watcher = FileSystems.getDefault().newWatchService();
+				Thread thread = new Thread(this::invalidateChanged, "Registry document watcher");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_CREATE);
+			watched.add(directory);
+		} catch (IOException e) {
+			// files are still checked by modification time and size
+			e.printStackTrace();
+		}
+	}
+
+	private void invalidateChanged() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watcher.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.context() instanceof Path) {
+					File changed = directory.resolve((Path) event.context()).toFile();
+					try {
+						entries.remove(changed.getCanonicalPath());
+					} catch (IOException e) {
+						entries.remove(changed.getAbsolutePath());
+					}
+				}
+			}
+			key.reset();
+		}
+	}
+
+	private static class Entry {
+		private final SBOLDocument doc;
+		private final String uriPrefix;
+		private final long modified;
+		private final long length;
+
+		private Entry(SBOLDocument doc, String uriPrefix, long modified, long length) {
+			this.doc = doc;
+			this.uriPrefix = uriPrefix;
+			this.modified = modified;
+			this.length = length;
+		}
+
+		private boolean isCurrent(String uriPrefix, long modified, long length) {
+			return this.uriPrefix.equals(uriPrefix) && this.modified == modified && this.length == length;
+		}
+	}
+
+	/**
+	 * The CDs of a document by role and by type. Answers to queries are kept,
+	 * so switching back to a role is immediate.
+	 */
+	private static class PartIndex {
+		private final List<ComponentDefinition> all;
+		private final Map<URI, List<ComponentDefinition>> byRole = new ConcurrentHashMap<>();
+		private final Map<List<Object>, List<ComponentDefinition>> answers = new ConcurrentHashMap<>();
+
+		private PartIndex(SBOLDocument doc) {
+			all = new ArrayList<>(doc.getComponentDefinitions());
+			for (ComponentDefinition cd : all) {
+				for (URI role : cd.getRoles()) {
+					byRole.computeIfAbsent(role, r -> new ArrayList<>()).add(cd);
+				}
+			}
+		}
+
+		private List<ComponentDefinition> get(Part part, Types type) {
+			URI role = part == null || part.getRoles() == null || part.getRoles().isEmpty() ? null : part.getRole();
+			return answers.computeIfAbsent(Arrays.asList(role, type), key -> {
+				List<ComponentDefinition> ofRole = role == null ? all : getOfRole(role);
+				return SBOLUtils.getCDOfType(ofRole, type);
+			});
+		}
+
+		private List<ComponentDefinition> getOfRole(URI parent) {
+			// there are far fewer distinct roles than CDs
+			Set<ComponentDefinition> result = new LinkedHashSet<>();
+			for (Map.Entry<URI, List<ComponentDefinition>> entry : byRole.entrySet()) {
+				if (SequenceOntologyIndex.INSTANCE.isAnyDescendantOrSelf(Collections.singleton(entry.getKey()),
+						parent)) {
+					result.addAll(entry.getValue());
+				}
+			}
+			return new ArrayList<>(result);
+		}
+	}
+}
@@ -42,8 +42,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -51,6 +50,7 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -81,12 +81,12 @@ import org.sbolstandard.core2.Range;
 import org.sbolstandard.core2.RestrictionType;
 import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
-import org.sbolstandard.core2.SBOLValidate;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SBOLWriter;
 import org.sbolstandard.core2.Sequence;
 import org.sbolstandard.core2.SequenceAnnotation;
+import org.sbolstandard.core2.SequenceConstraint;
 import org.sbolstandard.core2.SequenceOntology;
+import org.sbolstandard.core2.TopLevel;
 import org.sbolstandard.core2.VariableComponent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -105,6 +105,8 @@ import edu.utah.ece.async.sboldesigner.sbol.CombinatorialExpansionUtil;
 import edu.utah.ece.async.sboldesigner.sbol.ProvenanceUtil;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceRope;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.ComponentDefinitionBox;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.PartEditDialog;
@@ -227,7 +229,7 @@ public class SBOLDesign {
 		protected void perform() {
 			try {
 				expandCombinatorial();
-			} catch (SBOLValidationException | FileNotFoundException | SBOLConversionException e) {
+			} catch (SBOLValidationException | IOException | SBOLConversionException e) {
 				MessageDialog.showMessage(panel, "There was a problem performing the combinatorial design expansion: ",
 						e.getMessage());
 				e.printStackTrace();
@@ -343,6 +345,8 @@ public class SBOLDesign {
 	private final Box backboneBox;
 	private final JPanel panel;
 
+	private final DesignValidator validator;
+
 	private final JPopupMenu selectionPopupMenu = createPopupMenu(FIND, EDIT, FLIP, DELETE, FOCUS_IN);
 	private final JPopupMenu noSelectionPopupMenu = createPopupMenu(EDIT_CANVAS, FOCUS_OUT);
 
@@ -381,6 +385,7 @@ public class SBOLDesign {
 		contentPanel.add(backboneBox);
 
 		panel = new DesignPanel();
+		validator = new DesignValidator(panel, this, eventBus);
 		panel.setOpaque(false);
 		panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
 		panel.setAlignmentX(0.5f);
@@ -494,16 +499,33 @@ public class SBOLDesign {
 	 * loaded. If rootUri is not null, use that rootUri as the root part.
 	 */
 	public boolean load(SBOLDocument doc, URI rootUri) throws SBOLValidationException {
+		return load(doc, rootUri, null);
+	}
+
+	/**
+	 * Like load(doc, rootUri). snapshot, if not null, is an unchanged copy of
+	 * doc that is validated in the background, instead of copying doc here.
+	 */
+	public boolean load(SBOLDocument doc, URI rootUri, SBOLDocument snapshot) throws SBOLValidationException {
 		if (doc == null) {
 			JOptionPane.showMessageDialog(panel, "No document to load.", "Load error", JOptionPane.ERROR_MESSAGE);
 			return false;
 		}
 		doc.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
 		SBOLUtils.populateRegistries(doc);
-		SBOLValidate.validateSBOL(doc, false, false, true);
-		List<String> errors = SBOLValidate.getErrors();
-		if (!errors.isEmpty()) {
-			MessageDialog.showMessage(panel, "Beware, this file isn't following best practice", errors);
+		if (snapshot == null) {
+			try {
+				snapshot = new SBOLDocument();
+				snapshot.setDefaultURIprefix(doc.getDefaultURIprefix());
+				snapshot.createCopy(doc);
+			} catch (SBOLValidationException e) {
+				validator.copyFailed(e);
+				snapshot = null;
+			}
+		}
+		if (snapshot != null) {
+			// the design is shown without waiting for the validation
+			validator.validate(snapshot);
 		}
 		design = doc;
 
@@ -884,9 +906,10 @@ public class SBOLDesign {
 	}
 
 	private void setupIcons(final JLabel button, final DesignElement e) throws SBOLValidationException {
-		Image image = e.getPart().getImage(e.getOrientation(), e.isComposite(), e.hasVariants(design, canvasCD),
+		boolean hasVariants = e.hasVariants(design, canvasCD);
+		Image image = e.getPart().getImage(e.getOrientation(), e.isComposite(), hasVariants, e.hasSequence());
+		Image selectedImage = e.getPart().getSelectedImage(e.getOrientation(), e.isComposite(), hasVariants,
 				e.hasSequence());
-		Image selectedImage = Images.createBorderedImage(image, Color.LIGHT_GRAY);
 		button.setIcon(new ImageIcon(image));
 		button.setDisabledIcon(new ImageIcon(selectedImage));
 	}
@@ -980,7 +1003,7 @@ public class SBOLDesign {
 	}
 
 	private String getTooltipText(DesignElement e) {
-		SequenceOntology so = new SequenceOntology();
+		SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 		StringBuilder sb = new StringBuilder();
 		sb.append("<html>");
 		final ComponentDefinition comp = e.getCD();
@@ -1096,10 +1119,13 @@ public class SBOLDesign {
 			if (e == selectedElement) {
 				setSelectedElement(null);
 				deleteCombinatorialDesign(canvasCD, e.component);
-				design.removeComponentDefinition(e.component.getDefinition());
-				canvasCD.removeSequenceAnnotation(e.seqAnn);
-				canvasCD.clearSequenceConstraints();
+				ComponentDefinition cd = e.component.getDefinition();
+				design.removeComponentDefinition(cd);
+				SBOLUtils.releaseDisplayId(design, "CD", cd.getDisplayId(), cd.getVersion());
+				removeSequenceAnnotation(e.seqAnn);
+				clearSequenceConstraints();
 				canvasCD.removeComponent(e.component);
+				SBOLUtils.releaseDisplayId(canvasCD, "Component", e.component.getDisplayId());
 			}
 
 			JLabel button = buttons.remove(e);
@@ -1139,9 +1165,12 @@ public class SBOLDesign {
 		}
 
 		derivationToRemoveFrom.removeVariableComponent(variableToBeRemoved);
+		SBOLUtils.releaseDisplayId(derivationToRemoveFrom, "VariableComponent", variableToBeRemoved.getDisplayId());
 
 		if (derivationToRemoveFrom.getVariableComponents().isEmpty()) {
 			design.removeCombinatorialDerivation(derivationToRemoveFrom);
+			SBOLUtils.releaseDisplayId(design, "CombinatorialDerivation", derivationToRemoveFrom.getDisplayId(),
+					derivationToRemoveFrom.getVersion());
 		}
 	}
 
@@ -1167,7 +1196,7 @@ public class SBOLDesign {
 			button.setText(getButtonText(e));
 			button.setToolTipText(getTooltipText(e));
 
-			fireDesignChangedEvent();
+			fireDesignChangedEvent(newCD);
 		}
 	}
 
@@ -1176,10 +1205,19 @@ public class SBOLDesign {
 		panel.repaint();
 	}
 
-	private void fireDesignChangedEvent() {
+	/**
+	 * Notifies listeners that the canvas CD and the given edited TopLevels
+	 * changed.
+	 */
+	private void fireDesignChangedEvent(TopLevel... edited) {
 		updateCanvasCD();
 		refreshUI();
-		eventBus.post(new DesignChangedEvent(this));
+		Set<TopLevel> changed = new LinkedHashSet<TopLevel>();
+		if (canvasCD != null) {
+			changed.add(canvasCD);
+		}
+		changed.addAll(Arrays.asList(edited));
+		eventBus.post(new DesignChangedEvent(this, changed));
 	}
 
 	private void fireSelectionChangedEvent() {
@@ -1321,7 +1359,7 @@ public class SBOLDesign {
 			setupIcons(buttons.get(e), e);
 		}
 
-		fireDesignChangedEvent();
+		fireDesignChangedEvent(editedCD != null ? editedCD : originalCD);
 	}
 
 	public void findPartForSelectedCD() throws Exception {
@@ -1351,7 +1389,7 @@ public class SBOLDesign {
 		setupIcons(button, e);
 	}
 
-	private void expandCombinatorial() throws SBOLValidationException, SBOLConversionException, FileNotFoundException {
+	private void expandCombinatorial() throws SBOLValidationException, SBOLConversionException, IOException {
 		ComponentDefinitionBox root = new ComponentDefinitionBox();
 		SBOLDocument doc = createDocument(root);
 
@@ -1369,14 +1407,11 @@ public class SBOLDesign {
 			return;
 		}
 
-		doc = CombinatorialExpansionUtil.createCombinatorialDesign(doc);
-
-		if (doc != null) {
-			if (!file.getName().contains(".")) {
-				file = new File(file + ".xml");
-			}
-			SBOLWriter.write(doc, new FileOutputStream(file));
+		if (!file.getName().contains(".")) {
+			file = new File(file + ".xml");
 		}
+
+		CombinatorialExpansionUtil.createCombinatorialDesign(doc, file);
 	}
 
 	public static void uploadDesign(Component panel, SBOLDocument uploadDoc, File uploadFile)
@@ -1514,12 +1549,21 @@ public class SBOLDesign {
 
 			Sequence oldSeq = canvasCD.getSequenceByEncoding(Sequence.IUPAC_DNA);
 			String oldElements = oldSeq == null ? "" : oldSeq.getElements();
+			SequenceRope implied = getImpliedSequence();
+
+			// nothing to do if the implied sequence didn't change
+			if (oldSeq != null && canvasCD.getSequences().size() == 1
+					&& SequenceRope.of(oldSeq).contentEquals(implied)) {
+				return;
+			}
+			String nucleotides = implied.toString();
+
 			// remove all current Sequences
 			for (Sequence s : canvasCD.getSequences()) {
 				canvasCD.removeSequence(s.getIdentity());
 				design.removeSequence(s);
+				SBOLUtils.releaseDisplayId(design, "Sequence", s.getDisplayId(), s.getVersion());
 			}
-			String nucleotides = canvasCD.getImpliedNucleicAcidSequence();
 
 			if (nucleotides != null && nucleotides.length() > 0) {
 				if (nucleotides.length() < oldElements.length()) {
@@ -1566,6 +1610,7 @@ public class SBOLDesign {
 				String uniqueId = SBOLUtils.getUniqueDisplayId(null, null, canvasCD.getDisplayId() + "Sequence", "1",
 						"Sequence", design);
 				Sequence newSequence = design.createSequence(uniqueId, "1", nucleotides, Sequence.IUPAC_DNA);
+				SequenceRope.cache(newSequence, implied);
 				canvasCD.addSequence(newSequence);
 			} else {
 				// use the old sequence provided it was there
@@ -1588,49 +1633,139 @@ public class SBOLDesign {
 	}
 
 	/**
-	 * Updates all the seqAnns of the DesignElements in elements
+	 * Returns canvasCD's implied sequence, built from the shared ropes of the
+	 * elements' sequences instead of copying them all into a new String.
+	 */
+	private SequenceRope getImpliedSequence() {
+		List<SequenceRope> ropes = new ArrayList<>();
+		for (DesignElement e : elements) {
+			if (e.getCD() == null) {
+				// annotations without components are only understood by
+				// libSBOLj
+				return SequenceRope.of(canvasCD.getImpliedNucleicAcidSequence());
+			}
+
+			Sequence seq = e.getCD().getSequenceByEncoding(Sequence.IUPAC_DNA);
+			if (seq == null) {
+				if (e.getCD().getComponents().isEmpty()) {
+					continue;
+				}
+				// the sequence of a child without one is implied by its own
+				// children, which libSBOLj works out
+				return SequenceRope.of(canvasCD.getImpliedNucleicAcidSequence());
+			}
+			SequenceRope rope = SequenceRope.of(seq);
+			ropes.add(e.getOrientation() == OrientationType.REVERSECOMPLEMENT ? rope.reverseComplement() : rope);
+		}
+		return SequenceRope.concat(ropes);
+	}
+
+	/**
+	 * Updates all the seqAnns of the DesignElements in elements. SeqAnns that
+	 * are already in the right place are left alone and Ranges are moved in
+	 * place, so only the seqAnns of changed parts get recreated.
 	 */
 	private void updateSequenceAnnotations() throws SBOLValidationException {
 		int position = 1;
 		for (DesignElement e : elements) {
 			if (e.getCD() == null)
 				continue;
-			Location loc = e.seqAnn.getLocations().iterator().next();
-
-			// We no longer need this seqAnn
-			canvasCD.removeSequenceAnnotation(e.seqAnn);
 
-			e.seqAnn = DesignElement.createSeqAnn(canvasCD, design);
-
-			// if a sequence exists, give seqAnn a Range
 			Sequence seq = e.getCD().getSequenceByEncoding(Sequence.IUPAC_DNA);
-			if (seq != null) {
-				String uniqueId = SBOLUtils.getUniqueDisplayId(canvasCD, null, e.seqAnn.getDisplayId() + "_Range", null,
-						"Range", design);
-				int start = position;
-				int end = seq.getElements().length() + start - 1;
-				position = end + 1;
-				Range range = e.seqAnn.addRange(uniqueId, start, end, OrientationType.INLINE);
-				// remove all other locations
-				for (Location toBeRemoved : e.seqAnn.getLocations()) {
-					if (!toBeRemoved.equals(range)) {
-						e.seqAnn.removeLocation(toBeRemoved);
-					}
-				}
-			}
-			// maintain the orientation
-			if (loc.getOrientation() == OrientationType.REVERSECOMPLEMENT) {
-				e.flipOrientation();
+			int length = seq == null ? 0 : SequenceRope.of(seq).length();
+			if (!moveSequenceAnnotation(e, seq != null, position, position + length - 1)) {
+				recreateSequenceAnnotation(e, seq != null, position, position + length - 1);
 			}
+			position += length;
 
-			e.seqAnn.setComponent(e.component.getIdentity());
 			JLabel button = buttons.get(e);
 			button.setToolTipText(getTooltipText(e));
 		}
 	}
 
+	/**
+	 * Moves e's seqAnn to start..end without recreating it. Returns false if
+	 * its locations don't have the right shape for that.
+	 */
+	private boolean moveSequenceAnnotation(DesignElement e, boolean hasSequence, int start, int end)
+			throws SBOLValidationException {
+		if (!e.component.getIdentity().equals(e.seqAnn.getComponentURI()) || e.seqAnn.getLocations().size() != 1) {
+			return false;
+		}
+
+		Location loc = e.seqAnn.getLocations().iterator().next();
+		if (!hasSequence) {
+			return !(loc instanceof Range);
+		}
+		if (!(loc instanceof Range)) {
+			return false;
+		}
+
+		Range range = (Range) loc;
+		// keep start <= end while moving
+		if (start > range.getEnd()) {
+			range.setEnd(end);
+			range.setStart(start);
+		} else {
+			range.setStart(start);
+			range.setEnd(end);
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces e's seqAnn by a new one with a Range from start to end (if
+	 * hasSequence) that keeps the old orientation.
+	 */
+	private void recreateSequenceAnnotation(DesignElement e, boolean hasSequence, int start, int end)
+			throws SBOLValidationException {
+		Location loc = e.seqAnn.getLocations().iterator().next();
+
+		// We no longer need this seqAnn
+		removeSequenceAnnotation(e.seqAnn);
+
+		e.seqAnn = DesignElement.createSeqAnn(canvasCD, design);
+
+		// if a sequence exists, give seqAnn a Range
+		if (hasSequence) {
+			String uniqueId = SBOLUtils.getUniqueDisplayId(canvasCD, null, e.seqAnn.getDisplayId() + "_Range", null,
+					"Range", design);
+			Range range = e.seqAnn.addRange(uniqueId, start, end, OrientationType.INLINE);
+			// remove all other locations
+			for (Location toBeRemoved : e.seqAnn.getLocations()) {
+				if (!toBeRemoved.equals(range)) {
+					e.seqAnn.removeLocation(toBeRemoved);
+					SBOLUtils.releaseDisplayId(canvasCD, "Range", toBeRemoved.getDisplayId());
+				}
+			}
+		}
+		// maintain the orientation
+		if (loc.getOrientation() == OrientationType.REVERSECOMPLEMENT) {
+			e.flipOrientation();
+		}
+
+		e.seqAnn.setComponent(e.component.getIdentity());
+	}
+
+	/**
+	 * Removes seqAnn from canvasCD, freeing up its displayIds.
+	 */
+	private void removeSequenceAnnotation(SequenceAnnotation seqAnn) {
+		canvasCD.removeSequenceAnnotation(seqAnn);
+		SBOLUtils.releaseDisplayId(canvasCD, "SequenceAnnotation", seqAnn.getDisplayId());
+		for (Location location : seqAnn.getLocations()) {
+			SBOLUtils.releaseDisplayId(canvasCD, "Range", location.getDisplayId());
+		}
+	}
+
+	private void clearSequenceConstraints() throws SBOLValidationException {
+		canvasCD.clearSequenceConstraints();
+		SBOLUtils.releaseDisplayIds(canvasCD, "SequenceConstraint");
+	}
+
 	/**
 	 * Generates canvasCD's SequenceConstraints based on ordering in elements.
+	 * Constraints between elements that are still neighbors are kept.
 	 */
 	private void updateSequenceConstraints() throws SBOLValidationException {
 		// only makes sense to have SCs if there are 2 or more components
@@ -1638,19 +1773,29 @@ public class SBOLDesign {
 			return;
 		}
 
-		canvasCD.clearSequenceConstraints();
-
-		// create a precedes relationship for all the elements except the last
+		// a precedes relationship for all the elements except the last
+		Set<List<URI>> precedes = new LinkedHashSet<>();
 		for (int i = 0; i < (elements.size() - 1); i++) {
 			org.sbolstandard.core2.Component subject = elements.get(i).component;
 			org.sbolstandard.core2.Component object = elements.get((i + 1)).component;
 
 			if (subject == null || object == null)
 				continue;
+			precedes.add(Arrays.asList(subject.getIdentity(), object.getIdentity()));
+		}
+
+		for (SequenceConstraint sc : new ArrayList<>(canvasCD.getSequenceConstraints())) {
+			if (sc.getRestriction() != RestrictionType.PRECEDES
+					|| !precedes.remove(Arrays.asList(sc.getSubjectURI(), sc.getObjectURI()))) {
+				canvasCD.removeSequenceConstraint(sc);
+				SBOLUtils.releaseDisplayId(canvasCD, "SequenceConstraint", sc.getDisplayId());
+			}
+		}
+
+		for (List<URI> pair : precedes) {
 			String uniqueId = SBOLUtils.getUniqueDisplayId(canvasCD, null,
 					canvasCD.getDisplayId() + "_SequenceConstraint", null, "SequenceConstraint", design);
-			canvasCD.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, subject.getIdentity(),
-					object.getIdentity());
+			canvasCD.createSequenceConstraint(uniqueId, RestrictionType.PRECEDES, pair.get(0), pair.get(1));
 		}
 	}
 
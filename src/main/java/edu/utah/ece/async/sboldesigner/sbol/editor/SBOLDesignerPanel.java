@@ -38,9 +38,7 @@ import javax.swing.UIManager;
 import org.sbolstandard.core2.ComponentDefinition;
 import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
-import org.sbolstandard.core2.SBOLReader;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SBOLWriter;
 import org.sbolstandard.core2.Sequence;
 import org.sbolstandard.core2.TopLevel;
 import org.synbiohub.frontend.SynBioHubFrontend;
@@ -49,6 +47,7 @@ import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 import com.google.common.eventbus.Subscribe;
 
+import edu.utah.ece.async.sboldesigner.sbol.CompressionUtil;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.WebOfRegistriesUtil;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.AboutDialog;
@@ -57,6 +56,8 @@ import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.PreferencesDialog;
 import edu.utah.ece.async.sboldesigner.sbol.editor.event.DesignChangedEvent;
 import edu.utah.ece.async.sboldesigner.sbol.editor.io.DocumentIO;
+import edu.utah.ece.async.sboldesigner.sbol.editor.io.DocumentLoader;
+import edu.utah.ece.async.sboldesigner.sbol.editor.io.DocumentSaver;
 import edu.utah.ece.async.sboldesigner.sbol.editor.io.FileDocumentIO;
 import edu.utah.ece.async.sboldesigner.versioning.Infos;
 import edu.utah.ece.async.sboldesigner.versioning.PersonInfo;
@@ -244,6 +245,11 @@ public class SBOLDesignerPanel extends JPanel {
 
 	DocumentIO documentIO;
 
+	// the save of the design that was started last
+	private DocumentSaver pendingSave = null;
+	// the save that was started last, of the design or an export
+	private DocumentSaver lastSave = null;
+
 	private SBOLDesignerStandalone frame = null;
 
 	public SBOLDesignerPanel(SBOLDesignerStandalone frame) {
@@ -356,12 +362,24 @@ public class SBOLDesignerPanel extends JPanel {
 		}
 	}
 
+	/**
+	 * Reads the document in the background and shows it once it is read.
+	 */
 	void openDocument(DocumentIO documentIO) throws SBOLValidationException, IOException, SBOLConversionException {
-		SBOLDocument doc = documentIO.read();
-		doc.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-		if (editor.getDesign().load(doc, null)) {
-			setCurrentFile(documentIO);
-		}
+		DocumentLoader.load(this, documentIO, new DocumentLoader.Listener() {
+			@Override
+			public void documentLoaded(SBOLDocument doc, SBOLDocument snapshot) {
+				try {
+					doc.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
+					if (editor.getDesign().load(doc, null, snapshot)) {
+						setCurrentFile(documentIO);
+					}
+				} catch (SBOLValidationException e) {
+					MessageDialog.showMessage(null, "There was a problem opening this document: ", e.getMessage());
+					e.printStackTrace();
+				}
+			}
+		});
 	}
 
 	private void saveAs() throws IOException, Exception {
@@ -380,14 +398,18 @@ public class SBOLDesignerPanel extends JPanel {
 
 		if (file.exists()) {
 			int selection = chooseSaveOption();
-			saveOption(SBOLReader.read(file), doc, root.cd, selection, file);
+			SBOLDocument existing;
+			synchronized (SBOLUtils.READER_LOCK) {
+				existing = CompressionUtil.read(file);
+			}
+			saveOption(existing, doc, root.cd, selection, file);
 		} else {
 			String fileName = file.getName();
 			if (!fileName.contains(".")) {
 				file = new File(file + ".xml");
 			}
 
-			SBOLWriter.write(doc, new FileOutputStream(file));
+			lastSave = DocumentSaver.save(this, doc, file, SBOLDocument.RDF, null);
 		}
 	}
 
@@ -421,21 +443,21 @@ public class SBOLDesignerPanel extends JPanel {
 			if (!fileName.contains(".")) {
 				file = new File(file + ".gb");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.GENBANK);
+			lastSave = DocumentSaver.save(this, doc, file, SBOLDocument.GENBANK, null);
 			break;
 		case 1:
 			// FASTA
 			if (!fileName.contains(".")) {
 				file = new File(file + ".fasta");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.FASTAformat);
+			lastSave = DocumentSaver.save(this, doc, file, SBOLDocument.FASTAformat, null);
 			break;
 		case 2:
 			// SBOL 1.1
 			if (!fileName.contains(".")) {
 				file = new File(file + ".xml");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.RDFV1);
+			lastSave = DocumentSaver.save(this, doc, file, SBOLDocument.RDFV1, null);
 			break;
 		default:
 			break;
@@ -446,6 +468,14 @@ public class SBOLDesignerPanel extends JPanel {
 	 * returns true if it is now safe to throw away the current design
 	 */
 	boolean confirmSave() throws Exception {
+		// the design counts as saved while it is being saved, and the saver
+		// thread doesn't keep the application alive. Saves run in order, so
+		// this waits for all of them. A failed save marks the design as
+		// modified again.
+		if (lastSave != null) {
+			lastSave.await();
+		}
+
 		if (isModified()) {
 			int confirmation = JOptionPane.showConfirmDialog(this,
 					"Current design has been modified. If you don't save\n"
@@ -456,7 +486,9 @@ public class SBOLDesignerPanel extends JPanel {
 			if (confirmation == JOptionPane.CANCEL_OPTION) {
 				return false;
 			} else if (confirmation == JOptionPane.OK_OPTION) {
-				return save();
+				// the design is about to be thrown away, so the save has to
+				// succeed first
+				return save() && awaitSave();
 			}
 		}
 		return true;
@@ -511,9 +543,7 @@ public class SBOLDesignerPanel extends JPanel {
 			doc = editor.getDesign().createDocument(root);
 		}
 
-		documentIO.write(doc);
-		updateEnabledButtons(false);
-
+		saveInBackground(doc, FileDocumentIO.getFileToWrite());
 		return true;
 	}
 
@@ -575,7 +605,13 @@ public class SBOLDesignerPanel extends JPanel {
 			break;
 		case 2: // new version
 			URI newRootUri = saveNewVersion(currentRootCD, currentDesign, doc);
-			design.load(doc, newRootUri);
+			SBOLDocument loaded = doc;
+			// the editor keeps and changes the loaded document, so a copy
+			// is saved
+			doc = new SBOLDocument();
+			doc.setDefaultURIprefix(loaded.getDefaultURIprefix());
+			doc.createCopy(loaded);
+			design.load(loaded, newRootUri);
 			break;
 		case 3: // overwrite parts
 			// Remove from doc everything contained within currentDesign
@@ -589,11 +625,36 @@ public class SBOLDesignerPanel extends JPanel {
 			throw new IllegalArgumentException();
 		}
 
-		SBOLWriter.write(doc, file);
-		updateEnabledButtons(false);
+		saveInBackground(doc, file);
 		return true;
 	}
 
+	/**
+	 * Saves doc into file without blocking the editor. The design counts as
+	 * saved right away, so changes made while saving mark it as modified
+	 * again; it is marked as modified again if the save fails.
+	 */
+	private void saveInBackground(SBOLDocument doc, File file) {
+		updateEnabledButtons(false);
+		pendingSave = DocumentSaver.save(this, doc, file, SBOLDocument.RDF, new DocumentSaver.Listener() {
+			@Override
+			public void saveFinished(boolean saved) {
+				if (!saved) {
+					updateEnabledButtons(true);
+				}
+			}
+		});
+		lastSave = pendingSave;
+	}
+
+	/**
+	 * Waits for the last save of the design to finish and returns whether it
+	 * succeeded. Exports aren't waited for.
+	 */
+	boolean awaitSave() {
+		return pendingSave == null || pendingSave.await();
+	}
+
 	/**
 	 * Takes every TopLevel in currentDesign, and copies it over to doc with a
 	 * new version.
@@ -21,7 +21,6 @@ import static edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorAction.SPACE
 import java.awt.BorderLayout;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.prefs.Preferences;
@@ -37,7 +36,6 @@ import org.apache.commons.httpclient.URIException;
 import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SBOLWriter;
 import org.synbiohub.frontend.SynBioHubException;
 
 import com.google.common.eventbus.Subscribe;
@@ -45,6 +43,7 @@ import com.google.common.eventbus.Subscribe;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.ComponentDefinitionBox;
 import edu.utah.ece.async.sboldesigner.sbol.editor.event.DesignChangedEvent;
+import edu.utah.ece.async.sboldesigner.sbol.editor.io.AtomicFileWriter;
 import edu.utah.ece.async.sboldesigner.sbol.editor.io.DocumentIO;
 import edu.utah.ece.async.sboldesigner.sbol.editor.io.FileDocumentIO;
 import edu.utah.ece.async.sboldesigner.versioning.Infos;
@@ -100,8 +99,9 @@ public class SBOLDesignerPlugin extends SBOLDesignerPanel {
 		fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
 		fc.setAcceptAllFileFilterUsed(true);
 		fc.setFileFilter(
-				new FileNameExtensionFilter("SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta)",
-						"xml", "rdf", "sbol", "gb", "gbk", "fasta"));
+				new FileNameExtensionFilter(
+						"SBOL file (*.xml, *.rdf, *.sbol), GenBank (*.gb, *.gbk), FASTA (*.fasta), compressed (*.gz)",
+						"xml", "rdf", "sbol", "gb", "gbk", "fasta", "gz"));
 		this.path = path;
 		this.fileName = fileName;
 		this.rootURI = rootURI;
@@ -173,7 +173,10 @@ public class SBOLDesignerPlugin extends SBOLDesignerPanel {
 
 	public void saveSBOL() throws Exception {
 		save();
-		updateEnabledButtons(false);
+		// callers expect the file to be written when this returns
+		if (awaitSave()) {
+			updateEnabledButtons(false);
+		}
 	}
 
 	boolean selectCurrentFile() {
@@ -228,28 +231,28 @@ public class SBOLDesignerPlugin extends SBOLDesignerPanel {
 			if (!fileName.contains(".")) {
 				file = new File(file + ".xml");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.RDF);
+			AtomicFileWriter.write(file, doc, SBOLDocument.RDF);
 			break;
 		case "SBOL1":
 			// SBOL 1.1
 			if (!fileName.contains(".")) {
 				file = new File(file + ".xml");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.RDFV1);
+			AtomicFileWriter.write(file, doc, SBOLDocument.RDFV1);
 			break;
 		case "GenBank":
 			// GenBank
 			if (!fileName.contains(".")) {
 				file = new File(file + ".gb");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.GENBANK);
+			AtomicFileWriter.write(file, doc, SBOLDocument.GENBANK);
 			break;
 		case "Fasta":
 			// FASTA
 			if (!fileName.contains(".")) {
 				file = new File(file + ".fasta");
 			}
-			SBOLWriter.write(doc, new FileOutputStream(file), SBOLDocument.FASTAformat);
+			AtomicFileWriter.write(file, doc, SBOLDocument.FASTAformat);
 			break;
 		}
 	}
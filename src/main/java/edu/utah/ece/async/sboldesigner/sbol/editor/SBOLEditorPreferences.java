@@ -15,6 +15,11 @@
 
 package edu.utah.ece.async.sboldesigner.sbol.editor;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.prefs.Preferences;
 
 import edu.utah.ece.async.sboldesigner.versioning.Infos;
@@ -23,29 +28,208 @@ import edu.utah.ece.async.sboldesigner.versioning.PersonInfo;
 public enum SBOLEditorPreferences {
 	INSTANCE;
 
+	/**
+	 * All the preferences as they were when the snapshot was taken. The getters
+	 * read the current snapshot, so they never touch the backing store. It is
+	 * replaced as a whole when a preference changes.
+	 */
+	public static final class Snapshot {
+		private final PersonInfo userInfo;
+		private final String userURIPrefix;
+		private final boolean branchingEnabled;
+		private final boolean versioningEnabled;
+		private final int seqBehavior;
+		private final int nameDisplayIdBehavior;
+		private final long expansionBudget;
+		private final int expansionShardSize;
+
+		private Snapshot(Preferences user, Preferences versioning, Preferences settings) {
+			String name = user.get("name", "");
+			String email = user.get("email", "");
+			String uri = user.get("uri", "http://www.dummy.org");
+			userInfo = Infos.forPerson(uri, name, email);
+			userURIPrefix = userInfo.getURI().toString();
+
+			branchingEnabled = versioning.getBoolean("enableBranching", false);
+			// versioning is no longer supported
+			versioningEnabled = versioning.getBoolean("enable", false);
+
+			seqBehavior = settings.getInt("seqBehavior", 1);
+			nameDisplayIdBehavior = settings.getInt("nameDisplayIdBehavior", 0);
+			expansionBudget = settings.getLong("expansionBudget", 10000);
+			expansionShardSize = settings.getInt("expansionShardSize", 1000);
+		}
+
+		public PersonInfo getUserInfo() {
+			return userInfo;
+		}
+
+		/**
+		 * The URI of the user, which prefixes everything in the user's
+		 * namespace.
+		 */
+		public String getUserURIPrefix() {
+			return userURIPrefix;
+		}
+
+		public boolean isBranchingEnabled() {
+			return branchingEnabled;
+		}
+
+		public boolean isVersioningEnabled() {
+			return versioningEnabled;
+		}
+
+		/**
+		 * askUser is 0, overwrite is 1, and keep is 2
+		 */
+		public int getSeqBehavior() {
+			return seqBehavior;
+		}
+
+		/**
+		 * show name is 0, show displayId is 1
+		 */
+		public int getNameDisplayIdBehavior() {
+			return nameDisplayIdBehavior;
+		}
+
+		public long getExpansionBudget() {
+			return expansionBudget;
+		}
+
+		public int getExpansionShardSize() {
+			return expansionShardSize;
+		}
+	}
+
+	// only replaced while holding the lock of this, so a snapshot that was
+	// read before a change can't be published after it
+	private volatile Snapshot snapshot = null;
+
+	// set while update runs, so the changes it makes are published together
+	private volatile boolean updating = false;
+
+	private final Set<Preferences> listenedTo = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+	// "path/key=value" of the changes made through this class whose change
+	// events haven't arrived yet, with how many of each are expected
+	private final Map<String, Integer> ownChanges = new HashMap<>();
+
+	/**
+	 * Returns the current values of all preferences.
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					snapshot = new Snapshot(node("user"), node("versioning"), node("settings"));
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Runs changes, which may call any of the setters, and then publishes a
+	 * single snapshot with all of them. Readers see either the old or the new
+	 * values, never a mix.
+	 */
+	public synchronized void update(Runnable changes) {
+		updating = true;
+		try {
+			changes.run();
+		} finally {
+			updating = false;
+			snapshot = new Snapshot(node("user"), node("versioning"), node("settings"));
+		}
+	}
+
+	/**
+	 * Returns the preferences node called name. The snapshot is invalidated
+	 * whenever something in it changes from outside this class. Changes made
+	 * here invalidate it right away, so their events are ignored when they
+	 * arrive later on.
+	 */
+	private Preferences node(String name) {
+		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node(name);
+		if (listenedTo.add(prefs)) {
+			prefs.addPreferenceChangeListener(event -> {
+				if (!isOwnChange(event.getNode(), event.getKey(), event.getNewValue())) {
+					changed();
+				}
+			});
+		}
+		return prefs;
+	}
+
+	/**
+	 * Sets key of the node called name to value and invalidates the snapshot.
+	 */
+	private void put(String name, String key, String value) {
+		Preferences prefs = node(name);
+		synchronized (ownChanges) {
+			ownChanges.merge(change(prefs, key, value), 1, Integer::sum);
+		}
+		prefs.put(key, value);
+		changed();
+	}
+
+	/**
+	 * Returns whether the change was made by put, forgetting about it.
+	 */
+	private boolean isOwnChange(Preferences prefs, String key, String value) {
+		String change = change(prefs, key, value);
+		synchronized (ownChanges) {
+			Integer expected = ownChanges.get(change);
+			if (expected == null) {
+				return false;
+			}
+			if (expected == 1) {
+				ownChanges.remove(change);
+			} else {
+				ownChanges.put(change, expected - 1);
+			}
+			return true;
+		}
+	}
+
+	private static String change(Preferences prefs, String key, String value) {
+		return prefs.absolutePath() + "/" + key + "=" + value;
+	}
+
+	private synchronized void changed() {
+		if (!updating) {
+			snapshot = null;
+		}
+	}
+
 	public PersonInfo getUserInfo() {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("user");
-		String name = prefs.get("name", "");
-		String email = prefs.get("email", "");
-		String uri = prefs.get("uri", "http://www.dummy.org");
-		PersonInfo userInfo = Infos.forPerson(uri, name, email);
+		return getSnapshot().getUserInfo();
+	}
 
-		return userInfo;
+	/**
+	 * The URI of the user, which prefixes everything in the user's namespace.
+	 */
+	public String getUserURIPrefix() {
+		return getSnapshot().getUserURIPrefix();
 	}
 
 	public void saveUserInfo(PersonInfo userInfo) {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("user");
+		Preferences prefs = node("user");
 
 		try {
 			if (userInfo == null) {
 				prefs.removeNode();
 			} else {
-				prefs.put("uri", userInfo.getURI().toString());
-				prefs.put("name", userInfo.getName());
+				put("user", "uri", userInfo.getURI().toString());
+				put("user", "name", userInfo.getName());
 				if (userInfo.getEmail() != null) {
-					prefs.put("email", userInfo.getEmail().toString());
+					put("user", "email", userInfo.getEmail().toString());
 				} else {
-					prefs.put("email", "");
+					put("user", "email", "");
 				}
 			}
 
@@ -53,85 +237,78 @@ public enum SBOLEditorPreferences {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		changed();
 	}
 
 	public boolean getValidate() {
 		return false;
 	}
 
-	private Boolean enableBranching = null;
-	private Boolean enableVersioning = null;
-
 	public boolean isBranchingEnabled() {
-		if (enableBranching == null) {
-			Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("versioning");
-			enableBranching = prefs.getBoolean("enableBranching", false);
-		}
-
-		return enableBranching;
+		return getSnapshot().isBranchingEnabled();
 	}
 
 	public void setBranchingEnabled(boolean enableBranching) {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("versioning");
-		prefs.putBoolean("enableBranching", enableBranching);
+		put("versioning", "enableBranching", String.valueOf(enableBranching));
 	}
 
 	public boolean isVersioningEnabled() {
-		if (enableVersioning == null) {
-			Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("versioning");
-			// versioning is no longer supported
-			enableVersioning = prefs.getBoolean("enable", false);
-		}
-
-		return enableVersioning;
+		return getSnapshot().isVersioningEnabled();
 	}
 
 	public void setVersioningEnabled(boolean enableVersioning) {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("versioning");
-		prefs.putBoolean("enable", enableVersioning);
+		put("versioning", "enable", String.valueOf(enableVersioning));
 	}
 
-	private Integer seqBehavior = null;
-
 	/**
 	 * askUser is 0, overwrite is 1, and keep is 2
 	 */
 	public Integer getSeqBehavior() {
-		if (seqBehavior == null) {
-			Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("settings");
-			seqBehavior = prefs.getInt("seqBehavior", 1);
-		}
-		return seqBehavior;
+		return getSnapshot().getSeqBehavior();
 	}
 
 	/**
 	 * askUser is 0, overwrite is 1, and keep is 2
 	 */
 	public void setSeqBehavior(int seqBehavior) {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("settings");
-		prefs.putInt("seqBehavior", seqBehavior);
-		this.seqBehavior = seqBehavior;
+		put("settings", "seqBehavior", String.valueOf(seqBehavior));
 	}
 
-	private Integer nameDisplayIdBehavior = null;
-
 	/**
 	 * show name is 0, show displayId is 1
 	 */
 	public Integer getNameDisplayIdBehavior() {
-		if (nameDisplayIdBehavior == null) {
-			Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("settings");
-			nameDisplayIdBehavior = prefs.getInt("nameDisplayIdBehavior", 0);
-		}
-		return nameDisplayIdBehavior;
+		return getSnapshot().getNameDisplayIdBehavior();
 	}
 
 	/**
 	 * show name is 0, show displayId is 1
 	 */
 	public void setNameDisplayIdBehavior(int showNameOrDisplayId) {
-		Preferences prefs = Preferences.userNodeForPackage(SBOLEditorPreferences.class).node("settings");
-		prefs.putInt("nameDisplayIdBehavior", showNameOrDisplayId);
-		this.nameDisplayIdBehavior = showNameOrDisplayId;
+		put("settings", "nameDisplayIdBehavior", String.valueOf(showNameOrDisplayId));
+	}
+
+	/**
+	 * The number of designs a combinatorial expansion may produce before the
+	 * user has to confirm it.
+	 */
+	public long getExpansionBudget() {
+		return getSnapshot().getExpansionBudget();
+	}
+
+	public void setExpansionBudget(long expansionBudget) {
+		put("settings", "expansionBudget", String.valueOf(expansionBudget));
+	}
+
+	/**
+	 * The number of designs written into each file when a combinatorial
+	 * expansion is split over several files.
+	 */
+	public int getExpansionShardSize() {
+		return getSnapshot().getExpansionShardSize();
+	}
+
+	public void setExpansionShardSize(int expansionShardSize) {
+		put("settings", "expansionShardSize", String.valueOf(expansionShardSize));
 	}
 }
@@ -0,0 +1,324 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLReader;
+import org.sbolstandard.core2.SBOLWriter;
+import org.synbiohub.frontend.IdentifiedMetadata;
+import org.synbiohub.frontend.SearchCriteria;
+import org.synbiohub.frontend.SearchQuery;
+import org.synbiohub.frontend.SynBioHubException;
+import org.synbiohub.frontend.SynBioHubFrontend;
+
+import com.google.common.io.BaseEncoding;
+
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
+
+/**
+ * Wraps the SynBioHubFrontend calls SBOLDesigner browses with, keeping their
+ * results on disk. Results younger than TTL are served from disk without
+ * asking the registry, older ones are fetched again. When the registry can't
+ * be reached, whatever is on disk is served regardless of its age, so
+ * collections that were browsed before keep working offline.
+ * 
+ * Every result is a file in a compact binary format named by a hash of the
+ * registry and the query. The least recently used files are removed when the
+ * cache grows beyond MAX_BYTES. Frontends the user is logged into bypass the
+ * cache, so private parts never end up on disk.
+ */
+public class SynBioHubCache {
+	private static final long TTL = TimeUnit.HOURS.toMillis(1);
+	private static final long MAX_BYTES = 256L * 1024 * 1024;
+
+	private static final int MAGIC = 0x53424843;
+	private static final int FORMAT_VERSION = 1;
+
+	private static final File DIRECTORY = new File(System.getProperty("user.home"),
+			".sboldesigner" + File.separator + "cache" + File.separator + "synbiohub");
+
+	// the size of DIRECTORY, -1 until it is first needed
+	private static long size = -1;
+
+	private final String location;
+	private final SynBioHubFrontend frontend;
+	private final boolean enabled;
+
+	public SynBioHubCache(String location, SynBioHubFrontend frontend) {
+		this.location = location;
+		this.frontend = frontend;
+		this.enabled = !new SynBioHubFrontends().hasFrontend(location);
+	}
+
+	public List<IdentifiedMetadata> getRootCollectionMetadata() throws SynBioHubException {
+		return cached("rootCollections", () -> frontend.getRootCollectionMetadata(), SynBioHubCache::writeMetadata,
+				SynBioHubCache::readMetadata);
+	}
+
+	public List<IdentifiedMetadata> getSubCollectionMetadata(URI collection) throws SynBioHubException {
+		return cached("subCollections " + collection, () -> frontend.getSubCollectionMetadata(collection),
+				SynBioHubCache::writeMetadata, SynBioHubCache::readMetadata);
+	}
+
+	public List<IdentifiedMetadata> search(SearchQuery query) throws SynBioHubException {
+		StringBuilder key = new StringBuilder("search ");
+		key.append(query.getOffset()).append(' ').append(query.getLimit());
+		for (SearchCriteria criteria : query.getCriteria()) {
+			key.append(' ').append(criteria.getKey()).append('=').append(criteria.getValue());
+		}
+		return cached(key.toString(), () -> frontend.search(query), SynBioHubCache::writeMetadata,
+				SynBioHubCache::readMetadata);
+	}
+
+	public SBOLDocument getSBOL(URI uri) throws SynBioHubException {
+		return cached("sbol " + uri, () -> frontend.getSBOL(uri), (out, doc) -> {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			SBOLWriter.write(doc, bytes);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}, in -> {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			synchronized (SBOLUtils.READER_LOCK) {
+				return SBOLReader.read(new ByteArrayInputStream(bytes));
+			}
+		});
+	}
+
+	private interface Fetcher<T> {
+		T fetch() throws SynBioHubException;
+	}
+
+	private interface Writer<T> {
+		void write(DataOutputStream out, T value) throws Exception;
+	}
+
+	private interface Reader<T> {
+		T read(DataInputStream in) throws Exception;
+	}
+
+	private <T> T cached(String query, Fetcher<T> fetcher, Writer<T> writer, Reader<T> reader)
+			throws SynBioHubException {
+		if (!enabled) {
+			return fetcher.fetch();
+		}
+
+		String key = location + "\n" + query;
+		File file = new File(DIRECTORY, hash(key));
+		Entry<T> entry = read(file, key, reader);
+		if (entry != null && System.currentTimeMillis() - entry.storedAt < TTL) {
+			touch(file);
+			return entry.value;
+		}
+
+		T value;
+		try {
+			value = fetcher.fetch();
+		} catch (SynBioHubException e) {
+			if (entry != null) {
+				// offline, so stale is better than nothing
+				return entry.value;
+			}
+			throw e;
+		}
+
+		if (value != null) {
+			write(file, key, value, writer);
+		}
+		return value;
+	}
+
+	private static class Entry<T> {
+		private final long storedAt;
+		private final T value;
+
+		Entry(long storedAt, T value) {
+			this.storedAt = storedAt;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Returns null if file doesn't hold the result for key. Files that can't
+	 * be read are removed, so they don't fail again on every lookup.
+	 */
+	private static <T> Entry<T> read(File file, String key, Reader<T> reader) {
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			return readEntry(file, key, reader);
+		} catch (Exception e) {
+			// a broken or outdated entry is just a miss
+			remove(file);
+			return null;
+		}
+	}
+
+	private static <T> Entry<T> readEntry(File file, String key, Reader<T> reader) throws Exception {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Not a cache entry of this version: " + file);
+			}
+			if (!key.equals(readString(in))) {
+				return null;
+			}
+			long storedAt = in.readLong();
+			return new Entry<T>(storedAt, reader.read(in));
+		}
+	}
+
+	/**
+	 * Marks file as just used. This takes the same lock as evict, which may
+	 * be removing it.
+	 */
+	private static synchronized void touch(File file) {
+		if (file.isFile()) {
+			file.setLastModified(System.currentTimeMillis());
+		}
+	}
+
+	private static synchronized void remove(File file) {
+		long length = file.length();
+		if (file.delete() && size >= 0) {
+			size -= length;
+		}
+	}
+
+	private static synchronized <T> void write(File file, String key, T value, Writer<T> writer) {
+		File temp = null;
+		try {
+			DIRECTORY.mkdirs();
+			temp = File.createTempFile("entry", ".tmp", DIRECTORY);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				writeString(out, key);
+				out.writeLong(System.currentTimeMillis());
+				writer.write(out, value);
+			}
+
+			long replaced = file.length();
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if (size >= 0) {
+				size += file.length() - replaced;
+			}
+			evict();
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache is back to
+	 * three quarters of MAX_BYTES.
+	 */
+	private static void evict() {
+		File[] files = DIRECTORY.listFiles();
+		if (files == null) {
+			return;
+		}
+		if (size < 0) {
+			size = 0;
+			for (File file : files) {
+				size += file.length();
+			}
+		}
+		if (size <= MAX_BYTES) {
+			return;
+		}
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (size <= MAX_BYTES / 4 * 3) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	private static void writeMetadata(DataOutputStream out, List<IdentifiedMetadata> metadata) throws IOException {
+		out.writeInt(metadata.size());
+		for (IdentifiedMetadata meta : metadata) {
+			writeString(out, meta.getUri());
+			writeString(out, meta.getDisplayId());
+			writeString(out, meta.getName());
+			writeString(out, meta.getVersion());
+			writeString(out, meta.getDescription());
+			writeString(out, meta.getType());
+		}
+	}
+
+	private static List<IdentifiedMetadata> readMetadata(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		ArrayList<IdentifiedMetadata> metadata = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			IdentifiedMetadata meta = new IdentifiedMetadata();
+			meta.setUri(readString(in));
+			meta.setDisplayId(readString(in));
+			meta.setName(readString(in));
+			meta.setVersion(readString(in));
+			meta.setDescription(readString(in));
+			meta.setType(readString(in));
+			metadata.add(meta);
+		}
+		return metadata;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String hash(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return BaseEncoding.base16().lowerCase().encode(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -45,4 +45,12 @@ class ComponentDefinitionTableModel extends AbstractListTableModel<ComponentDefi
 			throw new IndexOutOfBoundsException();
 		}
 	}
+
+	/**
+	 * Returns the strings the filter looks for text in.
+	 */
+	public String[] getSearchText(ComponentDefinition CD) {
+		return new String[] { "Part", CD.getDisplayId(), CD.getName(), CD.getDescription(),
+				CD.getIdentity().toString() };
+	}
 }
\ No newline at end of file
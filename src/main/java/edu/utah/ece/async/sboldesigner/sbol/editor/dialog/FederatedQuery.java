@@ -0,0 +1,278 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.dialog;
+
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingWorker;
+
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.synbiohub.frontend.IdentifiedMetadata;
+import org.synbiohub.frontend.SearchQuery;
+import org.synbiohub.frontend.SynBioHubFrontend;
+
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
+import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.editor.Part;
+import edu.utah.ece.async.sboldesigner.sbol.editor.PartLibrary;
+import edu.utah.ece.async.sboldesigner.sbol.editor.PartLibrary.IndexedPart;
+import edu.utah.ece.async.sboldesigner.sbol.editor.Registry;
+import edu.utah.ece.async.sboldesigner.sbol.editor.RegistryDocuments;
+import edu.utah.ece.async.sboldesigner.sbol.editor.SynBioHubCache;
+import edu.utah.ece.async.sboldesigner.sbol.editor.SynBioHubFrontends;
+import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.RegistryInputDialog.TableUpdater;
+
+/**
+ * Searches all the registries at once. Every registry is queried on its own
+ * thread and its results are published as soon as they arrive, so the search
+ * takes as long as the slowest registry instead of the sum of all of them.
+ * Every registry is given up on TIMEOUT after it started. Parts that were
+ * already found, or that were derived from a part that was already found (or
+ * the other way around), are only listed once.
+ */
+public class FederatedQuery extends SwingWorker<Integer, TableMetadata> {
+
+	/**
+	 * How long to wait for each registry to answer, in milliseconds.
+	 */
+	public static long TIMEOUT = 30000;
+
+	private final List<Registry> registries;
+	private final Part part;
+	private final Types type;
+	private final String filterText;
+	private final String objectType;
+	private final SBOLDocument workingDoc;
+	private final TableUpdater tableUpdater;
+	private final LoadingDialog loading;
+
+	// the URIs of everything published so far
+	private final Set<String> published = new HashSet<>();
+	// published and what it was derived from
+	private final Set<String> seen = new HashSet<>();
+	private int found = 0;
+	// set once doInBackground is done, as registries that timed out may still
+	// be running
+	private boolean finished = false;
+
+	public FederatedQuery(List<Registry> registries, Part part, Types type, String filterText, String objectType,
+			SBOLDocument workingDoc, TableUpdater tableUpdater, Component parent) throws IOException {
+		this.registries = registries;
+		this.part = part;
+		this.type = type;
+		this.filterText = filterText;
+		this.objectType = objectType;
+		this.workingDoc = workingDoc;
+		this.tableUpdater = tableUpdater;
+		this.loading = new LoadingDialog(parent);
+	}
+
+	@Override
+	protected Integer doInBackground() throws Exception {
+		loading.start();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, registries.size()));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			List<AtomicLong> starts = new ArrayList<>();
+			for (Registry registry : registries) {
+				AtomicLong start = new AtomicLong(System.currentTimeMillis());
+				starts.add(start);
+				futures.add(executor.submit(() -> {
+					start.set(System.currentTimeMillis());
+					search(registry);
+					return null;
+				}));
+			}
+
+			for (int i = 0; i < futures.size() && !isCancelled(); i++) {
+				long remaining = starts.get(i).get() + TIMEOUT - System.currentTimeMillis();
+				try {
+					futures.get(i).get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+				} catch (ExecutionException e) {
+					// leave out registries that can't be searched
+					e.getCause().printStackTrace();
+				} catch (TimeoutException e) {
+					// leave out registries that don't answer in time
+					futures.get(i).cancel(true);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			synchronized (this) {
+				finished = true;
+			}
+		}
+
+		return found;
+	}
+
+	private void search(Registry registry) throws Exception {
+		if (registry.isMetadata()) {
+			SynBioHubFrontends frontends = new SynBioHubFrontends();
+			SynBioHubFrontend frontend = frontends.hasFrontend(registry.getLocation())
+					? frontends.getFrontend(registry.getLocation())
+					: new SynBioHubFrontend(registry.getLocation(), registry.getUriPrefix());
+
+			SearchQuery query = SynBioHubQuery.createSearchQuery(new HashSet<URI>(part.getRoles()),
+					SBOLUtils.convertTypesToSet(type), new HashSet<URI>(), filterText, objectType);
+			SynBioHubQuery.search(new SynBioHubCache(registry.getLocation(), frontend), query,
+					() -> isCancelled() || Thread.currentThread().isInterrupted(), page -> {
+						List<TableMetadata> rows = new ArrayList<>();
+						List<List<URI>> derivedFroms = new ArrayList<>();
+						for (IdentifiedMetadata meta : page) {
+							rows.add(new TableMetadata(meta, registry));
+							derivedFroms.add(Collections.emptyList());
+						}
+						publishNew(rows, derivedFroms);
+					});
+			return;
+		}
+
+		if (objectType != null && !objectType.equals("ComponentDefinition")) {
+			// path registries only have parts
+			return;
+		}
+
+		if (registry.isLibrary()) {
+			List<TableMetadata> rows = new ArrayList<>();
+			List<List<URI>> derivedFroms = new ArrayList<>();
+			for (IndexedPart indexed : PartLibrary.get(registry.getLocation())
+					.search(part == RegistryInputDialog.ALL_PARTS ? null : part, type, filterText)) {
+				rows.add(new TableMetadata(indexed.toMetadata(), registry));
+				derivedFroms.add(indexed.getWasDerivedFroms());
+			}
+			publishNew(rows, derivedFroms);
+			return;
+		}
+
+		SBOLDocument doc = readDocument(registry, workingDoc);
+		if (doc == null) {
+			return;
+		}
+
+		List<ComponentDefinition> components = RegistryDocuments.INSTANCE.getComponentDefinitions(doc,
+				part == RegistryInputDialog.ALL_PARTS ? null : part, type);
+
+		List<TableMetadata> rows = new ArrayList<>();
+		List<List<URI>> derivedFroms = new ArrayList<>();
+		for (ComponentDefinition cd : components) {
+			if (matches(cd)) {
+				rows.add(new TableMetadata(toMetadata(cd), registry));
+				derivedFroms.add(new ArrayList<>(cd.getWasDerivedFroms()));
+			}
+		}
+		publishNew(rows, derivedFroms);
+	}
+
+	/**
+	 * Publishes the rows that haven't been seen before and weren't derived
+	 * from a published row. derivedFroms holds what each row was derived
+	 * from. Rows that arrive after the search finished are dropped.
+	 */
+	private synchronized void publishNew(List<TableMetadata> rows, List<List<URI>> derivedFroms) {
+		if (finished) {
+			return;
+		}
+
+		List<TableMetadata> unseen = new ArrayList<>();
+		for (int i = 0; i < rows.size(); i++) {
+			TableMetadata row = rows.get(i);
+			String uri = row.identified.getUri();
+			if (seen.contains(uri) || isAnyPublished(derivedFroms.get(i))) {
+				continue;
+			}
+
+			published.add(uri);
+			seen.add(uri);
+			for (URI derivedFrom : derivedFroms.get(i)) {
+				seen.add(derivedFrom.toString());
+			}
+			unseen.add(row);
+		}
+
+		found += unseen.size();
+		publish(unseen.toArray(new TableMetadata[0]));
+	}
+
+	private boolean isAnyPublished(List<URI> uris) {
+		for (URI uri : uris) {
+			if (published.contains(uri.toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(ComponentDefinition cd) {
+		if (filterText == null || filterText.isEmpty()) {
+			return true;
+		}
+		String filter = filterText.toLowerCase(Locale.ROOT);
+		return contains(cd.getDisplayId(), filter) || contains(cd.getName(), filter)
+				|| contains(cd.getDescription(), filter);
+	}
+
+	private static boolean contains(String s, String filter) {
+		return s != null && s.toLowerCase(Locale.ROOT).contains(filter);
+	}
+
+	private static IdentifiedMetadata toMetadata(ComponentDefinition cd) {
+		IdentifiedMetadata meta = new IdentifiedMetadata();
+		meta.setUri(cd.getIdentity().toString());
+		meta.setDisplayId(cd.getDisplayId());
+		meta.setName(cd.getName());
+		meta.setVersion(cd.getVersion());
+		meta.setDescription(cd.getDescription());
+		meta.setType("ComponentDefinition");
+		return meta;
+	}
+
+	/**
+	 * Returns the document of a registry that isn't a SynBioHub instance, or
+	 * null if there is no such document. The document must not be modified.
+	 */
+	static SBOLDocument readDocument(Registry registry, SBOLDocument workingDoc)
+			throws SBOLValidationException, IOException, SBOLConversionException {
+		if (registry.equals(Registry.WORKING_DOCUMENT)) {
+			if (workingDoc != null) {
+				return workingDoc;
+			}
+			File file = SBOLUtils.setupFile();
+			return file.exists() ? RegistryDocuments.INSTANCE.getDocument(file) : null;
+		}
+		return RegistryDocuments.INSTANCE.getDocument(registry);
+	}
+
+	@Override
+	protected void process(List<TableMetadata> chunks) {
+		if (!isCancelled()) {
+			tableUpdater.addRows(chunks, filterText);
+		}
+	}
+
+	@Override
+	protected void done() {
+		loading.stop();
+		if (!isCancelled()) {
+			tableUpdater.finish(found, filterText);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.util.List;
 
+import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
@@ -20,6 +21,26 @@ public class MessageDialog {
 	}
 
 	public static void showMessage(Component parentComponent, String title, String message) {
+		JOptionPane.showMessageDialog(parentComponent, createMessagePane(message), title, JOptionPane.ERROR_MESSAGE);
+	}
+
+	/**
+	 * Like showMessage, but returns right away and lets the user keep working
+	 * while the message is shown.
+	 */
+	public static void showNonModalMessage(Component parentComponent, String title, List<String> messages) {
+		StringBuilder sb = new StringBuilder();
+		for (String message : messages) {
+			sb.append(message);
+			sb.append("\n");
+		}
+		JOptionPane pane = new JOptionPane(createMessagePane(sb.toString()), JOptionPane.WARNING_MESSAGE);
+		JDialog dialog = pane.createDialog(parentComponent, title);
+		dialog.setModal(false);
+		dialog.setVisible(true);
+	}
+
+	private static JScrollPane createMessagePane(String message) {
 		JTextArea jta = new JTextArea(message);
 		jta.setLineWrap(true);
 		jta.setWrapStyleWord(true);
@@ -30,6 +51,6 @@ public class MessageDialog {
 				return new Dimension(580, 320);
 			}
 		};
-		JOptionPane.showMessageDialog(parentComponent, jsp, title, JOptionPane.ERROR_MESSAGE);
+		return jsp;
 	}
 }
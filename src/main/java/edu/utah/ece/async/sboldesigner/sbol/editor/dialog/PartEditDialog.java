@@ -69,6 +69,7 @@ import com.google.common.collect.Iterables;
 import edu.utah.ece.async.sboldesigner.sbol.CharSequenceUtil;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Part;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Parts;
 import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
@@ -198,7 +199,7 @@ public class PartEditDialog extends JDialog implements ActionListener, DocumentL
 		updateRoleRefinement();
 		List<URI> refinementRoles = SBOLUtils.getRefinementRoles(CD, selectedPart);
 		if (!refinementRoles.isEmpty()) {
-			SequenceOntology so = new SequenceOntology();
+			SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 			roleRefinement.setSelectedItem(so.getName(refinementRoles.get(0)));
 		} else {
 			roleRefinement.setSelectedItem("None");
@@ -350,7 +351,7 @@ public class PartEditDialog extends JDialog implements ActionListener, DocumentL
 		updateRoleRefinement();
 		List<URI> refinementRoles = SBOLUtils.getRefinementRoles(SA, selectedPart);
 		if (!refinementRoles.isEmpty()) {
-			SequenceOntology so = new SequenceOntology();
+			SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 			roleRefinement.setSelectedItem(so.getName(refinementRoles.get(0)));
 		} else {
 			roleRefinement.setSelectedItem("None");
@@ -603,7 +604,7 @@ public class PartEditDialog extends JDialog implements ActionListener, DocumentL
 	private boolean importFromRegistryHandler() throws Exception {
 		Part part = roleSelection.getSelectedItem().equals("None") ? PartInputDialog.ALL_PARTS
 				: (Part) roleSelection.getSelectedItem();
-		URI role = new SequenceOntology().getURIbyName((String) roleRefinement.getSelectedItem());
+		URI role = SequenceOntologyIndex.INSTANCE.getOntology().getURIbyName((String) roleRefinement.getSelectedItem());
 		Types type = (Types) typeSelection.getSelectedItem();
 
 		// User selects the CD
@@ -698,10 +699,10 @@ public class PartEditDialog extends JDialog implements ActionListener, DocumentL
 			Set<URI> setRoles = new HashSet<URI>(part.getRoles());
 			// use the role from roleRefinement if not "None"
 			if (!roleRefinement.getSelectedItem().equals("None")) {
-				SequenceOntology so = new SequenceOntology();
+				SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 				setRoles.clear();
 				URI roleURI = so.getURIbyName((String) roleRefinement.getSelectedItem());
-				if (!so.isDescendantOf(roleURI, part.getRole())) {
+				if (!SequenceOntologyIndex.INSTANCE.isDescendantOf(roleURI, part.getRole())) {
 					throw new IllegalArgumentException(roleRefinement.getSelectedItem() + " isn't applicable for "
 							+ roleSelection.getSelectedItem());
 				}
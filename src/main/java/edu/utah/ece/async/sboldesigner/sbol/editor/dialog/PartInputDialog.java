@@ -31,6 +31,7 @@ import com.google.common.collect.Lists;
 
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Part;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Parts;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Registries;
@@ -187,7 +188,7 @@ public class PartInputDialog extends InputDialog<SBOLDocument> {
 		if (roleName == null || roleName.equals("None")) {
 			part = isRoleSelection() ? (Part) roleSelection.getSelectedItem() : ALL_PARTS;
 		} else {
-			SequenceOntology so = new SequenceOntology();
+			SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 			URI role = so.getURIbyName(roleName);
 			part = new Part(role, null, null);
 		}
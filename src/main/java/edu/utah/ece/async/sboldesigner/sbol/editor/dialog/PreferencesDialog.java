@@ -44,6 +44,8 @@ import javax.swing.event.ListSelectionListener;
 
 import com.google.common.base.Objects;
 
+import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
+
 /**
  * 
  * @author Evren Sirin
@@ -139,8 +141,13 @@ public class PreferencesDialog extends JDialog implements ActionListener {
 		boolean restart = false;
 		for (PreferencesTab tab : TABS) {
 			restart = tab.requiresRestart();
-			tab.save();
 		}
+		// publish all the tabs' changes at once
+		SBOLEditorPreferences.INSTANCE.update(() -> {
+			for (PreferencesTab tab : TABS) {
+				tab.save();
+			}
+		});
 
 		if (restart) {
 			JOptionPane.showMessageDialog(this, "Your changes will take effect next time the program is started");
@@ -21,6 +21,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JTextField;
 import javax.swing.text.JTextComponent;
@@ -82,6 +83,20 @@ public class RegistryAddDialog extends InputDialog<Registry> {
 			}
 		});
 		builder.add(null, browse);
+
+		JButton browseLibrary = new JButton("Browse part libraries (A directory of SBOL files)");
+		browseLibrary.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				JFileChooser fc = new JFileChooser();
+				fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+				if (fc.showOpenDialog(getParent()) == JFileChooser.APPROVE_OPTION) {
+					locationField.setText(fc.getSelectedFile().getPath());
+					uriPrefixField.setText("N/A");
+				}
+			}
+		});
+		builder.add(null, browseLibrary);
 	}
 
 	@Override
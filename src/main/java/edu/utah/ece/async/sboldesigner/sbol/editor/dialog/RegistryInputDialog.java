@@ -21,15 +21,18 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.PatternSyntaxException;
 
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -39,6 +42,8 @@ import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.RowFilter;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
@@ -47,8 +52,8 @@ import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 
 import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
-import org.sbolstandard.core2.SBOLReader;
 import org.sbolstandard.core2.SBOLValidationException;
 import org.sbolstandard.core2.SequenceOntology;
 import org.synbiohub.frontend.IdentifiedMetadata;
@@ -62,14 +67,18 @@ import com.google.common.collect.Lists;
 import edu.utah.ece.async.sboldesigner.sbol.CharSequenceUtil;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Part;
+import edu.utah.ece.async.sboldesigner.sbol.editor.PartLibrary;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Parts;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Registries;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Registry;
-import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
+import edu.utah.ece.async.sboldesigner.sbol.editor.RegistryDocuments;
+import edu.utah.ece.async.sboldesigner.sbol.editor.SynBioHubCache;
 import edu.utah.ece.async.sboldesigner.sbol.editor.SynBioHubFrontends;
 import edu.utah.ece.async.sboldesigner.swing.ComboBoxRenderer;
 import edu.utah.ece.async.sboldesigner.swing.FormBuilder;
+import edu.utah.ece.async.sboldesigner.swing.RowTextIndex;
 
 /**
  * 
@@ -162,11 +171,42 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 	 * Stores the filter text that caused the current ArrayList<TableMetadata>.
 	 */
 	private String cacheKey = "";
+	/*
+	 * Finds the rows of the table that match the filter text.
+	 */
+	private RowTextIndex<?> filterIndex = null;
 
 	private ComponentDefinitionBox root;
 
 	private static SynBioHubFrontend synBioHub;
 
+	/*
+	 * The query that is still filling the table, if any.
+	 */
+	private SwingWorker<Integer, TableMetadata> runningQuery = null;
+	/*
+	 * The filter text of runningQuery.
+	 */
+	private String runningFilter = null;
+
+	/*
+	 * How long to wait after the last keystroke before searching, in
+	 * milliseconds.
+	 */
+	private static final int SEARCH_DELAY = 300;
+	private final Timer searchTimer = new Timer(SEARCH_DELAY, new ActionListener() {
+		@Override
+		public void actionPerformed(ActionEvent event) {
+			searchOrFilterTable();
+		}
+	});
+
+	/*
+	 * When selected, every registry is searched instead of only the selected
+	 * one.
+	 */
+	private JCheckBox searchAllRegistries;
+
 	private boolean allowCollectionSelection = false;
 
 	private String objectType = "ComponentDefinition";
@@ -300,7 +340,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 		updateRoleRefinement();
 		roleRefinement.removeActionListener(roleRefinementListener);
 		if (refinementRole != null && refinementRole != part.getRole()) {
-			String roleName = new SequenceOntology().getName(refinementRole);
+			String roleName = SequenceOntologyIndex.INSTANCE.getOntology().getName(refinementRole);
 			if (!comboBoxContains(roleRefinement, roleName)) {
 				roleRefinement.addItem(roleName);
 			}
@@ -313,39 +353,94 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 		updateContext();
 
 		// set up the filter
+		searchTimer.setRepeats(false);
 		filterSelection.getDocument().addDocumentListener(new DocumentListener() {
 			@Override
 			public void removeUpdate(DocumentEvent paramDocumentEvent) {
-				searchOrFilterTable();
+				filterChanged();
 			}
 
 			@Override
 			public void insertUpdate(DocumentEvent paramDocumentEvent) {
-				searchOrFilterTable();
+				filterChanged();
 			}
 
 			@Override
 			public void changedUpdate(DocumentEvent paramDocumentEvent) {
-				searchOrFilterTable();
-			}
-
-			private void searchOrFilterTable() {
-				/*
-				 * System.out.println();
-				 * System.out.println("searchOrFilterTable");
-				 * System.out.println("refreshSearch: " + refreshSearch);
-				 * System.out.println("cacheKey: " + cacheKey);
-				 * System.out.println("filter: " + filterSelection.getText());
-				 */
-				if ((refreshSearch || filterSelection.getText().equals("")
-						|| !filterSelection.getText().contains(cacheKey)) && isMetadata()) {
-					searchParts(part, synBioHub, filterSelection.getText());
-				} else {
-					updateFilter(filterSelection.getText());
-				}
+				filterChanged();
 			}
 		});
 		builder.add("Filter parts", filterSelection);
+
+		searchAllRegistries = new JCheckBox("Search all registries");
+		searchAllRegistries.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent event) {
+				registrySelection.setEnabled(!isFederated());
+				collectionSelection.setEnabled(isMetadata() && !isFederated());
+				updateTable();
+			}
+		});
+		if (objectType == "ComponentDefinition") {
+			builder.add("", searchAllRegistries);
+		}
+	}
+
+	/**
+	 * Called on every keystroke. Filtering the rows that are already loaded
+	 * happens right away, but searching waits until the user stops typing for
+	 * SEARCH_DELAY ms, so typing a name sends one query instead of one per
+	 * character.
+	 */
+	private void filterChanged() {
+		String filterText = filterSelection.getText();
+		if (!needsSearch(filterText)) {
+			searchTimer.stop();
+			updateFilter(filterText);
+			return;
+		}
+
+		if (runningQuery != null && !filterText.equals(runningFilter)) {
+			// its results would be discarded anyway
+			cancelQuery();
+		}
+		searchTimer.restart();
+	}
+
+	private void searchOrFilterTable() {
+		/*
+		 * System.out.println(); System.out.println("searchOrFilterTable");
+		 * System.out.println("refreshSearch: " + refreshSearch);
+		 * System.out.println("cacheKey: " + cacheKey);
+		 * System.out.println("filter: " + filterSelection.getText());
+		 */
+		String filterText = filterSelection.getText();
+		if (runningQuery != null && !runningQuery.isDone() && filterText.equals(runningFilter)) {
+			// the same query is already running
+			return;
+		}
+
+		if (!needsSearch(filterText)) {
+			updateFilter(filterText);
+		} else if (isFederated()) {
+			searchRegistries(Lists.newArrayList(Registries.get()), part, filterText);
+		} else if (isLibrary()) {
+			searchRegistries(Collections.singletonList(getSelectedRegistry()), part, filterText);
+		} else {
+			searchParts(part, synBioHub, filterText);
+		}
+	}
+
+	/**
+	 * Returns whether the table has to be searched again for filterText, or if
+	 * filtering the loaded rows is enough.
+	 */
+	private boolean needsSearch(String filterText) {
+		// a query that is still running has to be replaced, its results are
+		// incomplete
+		boolean queryRunning = runningQuery != null && !runningQuery.isDone();
+		return (refreshSearch || queryRunning || filterText.equals("") || !filterText.contains(cacheKey))
+				&& isMetadataTable();
 	}
 
 	/**
@@ -370,7 +465,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			if (roleName == null || roleName.equals("None")) {
 				part = (Part) roleSelection.getSelectedItem();
 			} else {
-				SequenceOntology so = new SequenceOntology();
+				SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 				URI role = so.getURIbyName(roleName);
 				part = new Part(role, null, null);
 			}
@@ -378,8 +473,12 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			part = ALL_PARTS;
 		}
 
-		if (isMetadata()) {
-			searchParts(part, synBioHub, filterSelection.getText());
+		if (isMetadataTable()) {
+			if (isLibrary()) {
+				searchRegistries(Collections.singletonList(getSelectedRegistry()), part, filterSelection.getText());
+			} else {
+				searchParts(part, synBioHub, filterSelection.getText());
+			}
 			TableMetadataTableModel tableModel = new TableMetadataTableModel(new ArrayList<TableMetadata>());
 			panel = createTablePanel(tableModel, "Matching parts (" + tableModel.getRowCount() + ")");
 		} else {
@@ -403,6 +502,32 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 		return location.startsWith("http://") || location.startsWith("https://");
 	}
 
+	/**
+	 * Checks to see if all the registries are searched at once.
+	 */
+	private boolean isFederated() {
+		return searchAllRegistries != null && searchAllRegistries.isSelected();
+	}
+
+	/**
+	 * Checks to see if the registry we are working on is an indexed directory
+	 * of SBOL files.
+	 */
+	private boolean isLibrary() {
+		return !isMetadata() && PartLibrary.isLibrary(location);
+	}
+
+	/**
+	 * Checks to see if the table holds TableMetadata.
+	 */
+	private boolean isMetadataTable() {
+		return isMetadata() || isFederated() || isLibrary();
+	}
+
+	private Registry getSelectedRegistry() {
+		return (Registry) registrySelection.getSelectedItem();
+	}
+
 	/**
 	 * Gets the SBOLDocument from the path (file on disk) and returns all its
 	 * CDs.
@@ -417,14 +542,12 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 				part = null;
 			}
 
-			SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-			SBOLReader.setCompliant(true);
 			SBOLDocument doc;
 			Registry registry = (Registry) registrySelection.getSelectedItem();
 
 			if (registry.equals(Registry.BUILT_IN)) {
 				// read from BuiltInParts.xml
-				doc = SBOLReader.read(Registry.class.getResourceAsStream("/BuiltInParts.xml"));
+				doc = RegistryDocuments.INSTANCE.getDocument(registry);
 
 			} else if (registry.equals(Registry.WORKING_DOCUMENT)) {
 				if (workingDoc != null) {
@@ -435,7 +558,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 					File file = SBOLUtils.setupFile();
 
 					if (file.exists()) {
-						doc = SBOLReader.read(file);
+						doc = RegistryDocuments.INSTANCE.getDocument(file);
 					} else {
 						// JOptionPane.showMessageDialog(null, "The working
 						// document could not be found on disk. Try opening the
@@ -446,11 +569,10 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 
 			} else {
 				// read from the location (path)
-				doc = SBOLReader.read(location);
+				doc = RegistryDocuments.INSTANCE.getDocument(registry);
 			}
 
-			doc.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-			return SBOLUtils.getCDOfRole(doc, part);
+			return RegistryDocuments.INSTANCE.getComponentDefinitions(doc, part, Types.All_types);
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -487,10 +609,13 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 				Set<URI> setCollections = new HashSet<URI>(Arrays.asList(URI.create(selectedCollection.getUri())));
 				Set<URI> setRoles = new HashSet<URI>(part.getRoles());
 				Set<URI> setTypes = SBOLUtils.convertTypesToSet((Types) typeSelection.getSelectedItem());
-				SynBioHubQuery query = new SynBioHubQuery(synbiohub, setRoles, setTypes, setCollections, filterText,
-						objectType, new TableUpdater(), this);
+				// the results of the previous query aren't wanted anymore
+				cancelQuery();
+				runningQuery = new SynBioHubQuery(new SynBioHubCache(location, synbiohub), setRoles, setTypes,
+						setCollections, filterText, objectType, new TableUpdater(), this);
+				runningFilter = filterText;
 				// non-blocking: will update using the TableUpdater
-				query.execute();
+				runningQuery.execute();
 			}
 
 		} catch (Exception e) {
@@ -503,6 +628,49 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 		}
 	}
 
+	/**
+	 * Queries the registries for CDs matching the role(s) and type(s) of the
+	 * part. Also filters by the filterText.
+	 */
+	private void searchRegistries(List<Registry> registries, Part part, String filterText) {
+		try {
+			// the results of the previous query aren't wanted anymore
+			cancelQuery();
+			runningQuery = new FederatedQuery(registries, part, (Types) typeSelection.getSelectedItem(), filterText,
+					objectType, workingDoc, new TableUpdater(), this);
+			runningFilter = filterText;
+			// non-blocking: will update using the TableUpdater
+			runningQuery.execute();
+		} catch (Exception e) {
+			e.printStackTrace();
+			MessageDialog.showMessage(null, "Querying the registries failed: ", e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops fetching the results of the running query.
+	 */
+	private void cancelQuery() {
+		if (runningQuery != null) {
+			if (!runningQuery.isDone()) {
+				// the table is missing the rest of the results
+				refreshSearch = true;
+			}
+			runningQuery.cancel(true);
+			runningQuery = null;
+			runningFilter = null;
+		}
+	}
+
+	@Override
+	public void setVisible(boolean visible) {
+		if (!visible) {
+			searchTimer.stop();
+			cancelQuery();
+		}
+		super.setVisible(visible);
+	}
+
 	@Override
 	protected SBOLDocument getSelection() {
 		try {
@@ -510,7 +678,30 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			ComponentDefinition comp = null;
 			int row = table.convertRowIndexToModel(table.getSelectedRow());
 
-			if (isMetadata()) {
+			if (isFederated() || isLibrary()) {
+				TableMetadata compMeta = ((TableMetadataTableModel) table.getModel()).getElement(row);
+				Registry registry = compMeta.registry;
+				URI uri = URI.create(compMeta.identified.getUri());
+
+				if (registry.isMetadata()) {
+					SynBioHubFrontend frontend = createSynBioHubFrontend(registry.getLocation(),
+							registry.getUriPrefix());
+					document = new SynBioHubCache(registry.getLocation(), frontend).getSBOL(uri);
+					comp = document.getComponentDefinition(uri);
+
+					if (comp == null) {
+						for (ComponentDefinition cd : document.getRootComponentDefinitions()) {
+							comp = cd;
+						}
+					}
+				} else if (registry.isLibrary()) {
+					document = PartLibrary.get(registry.getLocation()).getDocument(uri);
+					comp = document.getComponentDefinition(uri);
+				} else {
+					comp = FederatedQuery.readDocument(registry, workingDoc).getComponentDefinition(uri);
+					document = new SBOLDocument().createRecursiveCopy(comp);
+				}
+			} else if (isMetadata()) {
 				TableMetadata compMeta = ((TableMetadataTableModel) table.getModel()).getElement(row);
 
 				if (synBioHub == null) {
@@ -522,7 +713,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 					return new SBOLDocument();
 				}
 
-				document = synBioHub.getSBOL(URI.create(compMeta.identified.getUri()));
+				document = new SynBioHubCache(location, synBioHub).getSBOL(URI.create(compMeta.identified.getUri()));
 				comp = document.getComponentDefinition(URI.create(compMeta.identified.getUri()));
 
 				if (comp == null) {
@@ -543,7 +734,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			}
 
 			return document;
-		} catch (SBOLValidationException | SynBioHubException e) {
+		} catch (SBOLValidationException | SynBioHubException | IOException | SBOLConversionException e) {
 			e.printStackTrace();
 			MessageDialog.showMessage(null, "Getting this selection failed: ", e.getMessage());
 			return null;
@@ -561,7 +752,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 	}
 
 	private void updateCollectionSelection(boolean registryChanged, IdentifiedMetadata newCollection) {
-		collectionSelection.setEnabled(isMetadata());
+		collectionSelection.setEnabled(isMetadata() && !isFederated());
 		if (!isMetadata()) {
 			return;
 		}
@@ -631,7 +822,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			if (roleName == null || roleName.equals("None")) {
 				part = (Part) roleSelection.getSelectedItem();
 			} else {
-				SequenceOntology so = new SequenceOntology();
+				SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 				URI role = so.getURIbyName(roleName);
 				part = new Part(role, null, null);
 			}
@@ -639,7 +830,11 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			part = ALL_PARTS;
 		}
 
-		if (isMetadata()) {
+		if (isFederated()) {
+			searchRegistries(Lists.newArrayList(Registries.get()), part, filterSelection.getText());
+		} else if (isLibrary()) {
+			searchRegistries(Collections.singletonList(getSelectedRegistry()), part, filterSelection.getText());
+		} else if (isMetadata()) {
 			searchParts(part, synBioHub, filterSelection.getText());
 		} else {
 			List<ComponentDefinition> components = searchParts(part);
@@ -672,7 +867,7 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 	@Override
 	protected void handleTableSelection(boolean select) {
 		// handle collection selected
-		if (isMetadata()) {
+		if (isMetadataTable()) {
 			int row = table.convertRowIndexToModel(table.getSelectedRow());
 			TableMetadata meta = ((TableMetadataTableModel) table.getModel()).getElement(row);
 			if (meta.isCollection && (!select || !allowCollectionSelection)) {
@@ -687,52 +882,74 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 	}
 
 	private void updateFilter(String filterText) {
-		filterText = "(?i)" + filterText;
-		if (isMetadata()) {
-			TableRowSorter<TableMetadataTableModel> sorter = (TableRowSorter) table.getRowSorter();
-			if (filterText.length() == 0) {
-				sorter.setRowFilter(null);
-			} else {
-				try {
-					RowFilter<TableMetadataTableModel, Object> rf = RowFilter.regexFilter(filterText, 0, 1, 2, 4);
-					sorter.setRowFilter(rf);
-				} catch (PatternSyntaxException e) {
-					sorter.setRowFilter(null);
-				}
-			}
-			tableLabel.setText("Matching parts (" + sorter.getViewRowCount() + ")");
+		@SuppressWarnings("unchecked")
+		TableRowSorter<TableModel> sorter = (TableRowSorter<TableModel>) table.getRowSorter();
+		final BitSet matches = getFilterIndex().search(filterText);
+		if (matches == null) {
+			sorter.setRowFilter(null);
 		} else {
-			TableRowSorter<ComponentDefinitionTableModel> sorter = (TableRowSorter) table.getRowSorter();
-			if (filterText.length() == 0) {
-				sorter.setRowFilter(null);
-			} else {
-				try {
-					RowFilter<ComponentDefinitionTableModel, Object> rf = RowFilter.regexFilter(filterText, 0, 1, 2, 4);
-					sorter.setRowFilter(rf);
-				} catch (PatternSyntaxException e) {
-					sorter.setRowFilter(null);
+			sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
+				@Override
+				public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+					return matches.get(entry.getIdentifier());
 				}
+			});
+		}
+		tableLabel.setText("Matching parts (" + sorter.getViewRowCount() + ")");
+	}
+
+	/**
+	 * Returns the index of the rows in the table, creating it when the table
+	 * has changed.
+	 */
+	private RowTextIndex<?> getFilterIndex() {
+		if (filterIndex == null || filterIndex.getModel() != table.getModel()) {
+			if (table.getModel() instanceof TableMetadataTableModel) {
+				TableMetadataTableModel tableModel = (TableMetadataTableModel) table.getModel();
+				filterIndex = new RowTextIndex<TableMetadata>(tableModel, tableModel::getSearchText);
+			} else {
+				ComponentDefinitionTableModel tableModel = (ComponentDefinitionTableModel) table.getModel();
+				filterIndex = new RowTextIndex<ComponentDefinition>(tableModel, tableModel::getSearchText);
 			}
-			tableLabel.setText("Matching parts (" + sorter.getViewRowCount() + ")");
 		}
+		return filterIndex;
 	}
 
 	/**
 	 * Updates the table using the provided components. This lets the
-	 * SBOLStackQuery thread update the table.
+	 * SynBioHubQuery thread update the table. Each query gets its own
+	 * TableUpdater, which replaces the table with the first results and adds
+	 * the following ones to it.
 	 */
 	public class TableUpdater {
-		public void updateTable(ArrayList<TableMetadata> identified, String filterText) {
+		private TableMetadataTableModel tableModel = null;
+
+		public void addRows(List<TableMetadata> identified, String filterText) {
 			if (!filterSelection.getText().equals(filterText)) {
 				// don't update if the filterSelection text has changed.
 				return;
 			}
 
-			TableMetadataTableModel tableModel = new TableMetadataTableModel(identified);
-			table = new JTable(tableModel);
-			tableLabel.setText("Matching parts (" + identified.size() + ")");
+			if (tableModel == null) {
+				createTable();
+			}
+			tableModel.addElements(identified);
+			tableLabel.setText("Matching parts (" + tableModel.getRowCount() + ")");
+		}
+
+		public void finish(int found, String filterText) {
+			if (!filterSelection.getText().equals(filterText)) {
+				// don't update if the filterSelection text has changed.
+				return;
+			}
+
+			if (tableModel == null) {
+				// nothing was found
+				createTable();
+			}
+			tableLabel.setText("Matching parts (" + tableModel.getRowCount() + ")");
 
-			refreshSearch = identified.size() >= SynBioHubQuery.QUERY_LIMIT;
+			refreshSearch = found >= SynBioHubQuery.QUERY_LIMIT;
 			if (filterText != null && !refreshSearch) {
 				cacheKey = filterText;
 			}
@@ -742,6 +959,11 @@ public class RegistryInputDialog extends InputDialog<SBOLDocument> {
 			 * System.out.println("cacheKey: " + cacheKey); System.out.println(
 			 * "filter: " + filterSelection.getText());
 			 */
+		}
+
+		private void createTable() {
+			tableModel = new TableMetadataTableModel(new ArrayList<TableMetadata>());
+			table = new JTable(tableModel);
 
 			TableRowSorter<TableModel> sorter = new TableRowSorter<TableModel>(tableModel);
 			table.setRowSorter(sorter);
@@ -4,7 +4,6 @@ import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,7 +25,6 @@ import javax.swing.table.TableRowSorter;
 import org.sbolstandard.core2.ComponentDefinition;
 import org.sbolstandard.core2.SBOLDocument;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SBOLWriter;
 import org.sbolstandard.core2.SequenceOntology;
 import org.synbiohub.frontend.SynBioHubException;
 import org.synbiohub.frontend.SynBioHubFrontend;
@@ -36,8 +34,10 @@ import com.google.common.collect.Lists;
 
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils.Types;
+import edu.utah.ece.async.sboldesigner.sbol.SequenceOntologyIndex;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Part;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Parts;
+import edu.utah.ece.async.sboldesigner.sbol.editor.io.AtomicFileWriter;
 import edu.utah.ece.async.sboldesigner.swing.FormBuilder;
 
 /**
@@ -139,7 +139,7 @@ public class RootInputDialog extends InputDialog<SBOLDocument> {
 						doc.removeComponentDefinition(comp);
 					}
 					File file = SBOLUtils.setupFile();
-					SBOLWriter.write(doc, new FileOutputStream(file));
+					AtomicFileWriter.write(file, doc, SBOLDocument.RDF);
 					updateTable();
 				} catch (Exception e1) {
 					MessageDialog.showMessage(rootPane, "Failed to delete CD: ", e1.getMessage());
@@ -219,7 +219,7 @@ public class RootInputDialog extends InputDialog<SBOLDocument> {
 		if (roleName == null || roleName.equals("None")) {
 			part = isRoleSelection() ? (Part) roleSelection.getSelectedItem() : ALL_PARTS;
 		} else {
-			SequenceOntology so = new SequenceOntology();
+			SequenceOntology so = SequenceOntologyIndex.INSTANCE.getOntology();
 			URI role = so.getURIbyName(roleName);
 			part = new Part(role, null, null);
 		}
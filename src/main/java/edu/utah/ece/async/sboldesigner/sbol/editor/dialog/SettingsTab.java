@@ -7,6 +7,7 @@ import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JRadioButton;
+import javax.swing.JTextField;
 
 import edu.utah.ece.async.sboldesigner.sbol.editor.Images;
 import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
@@ -28,6 +29,11 @@ public enum SettingsTab implements PreferencesTab {
 	private JRadioButton showDisplayId = new JRadioButton("Show displayId",
 			SBOLEditorPreferences.INSTANCE.getNameDisplayIdBehavior() == 1);
 
+	private JTextField expansionBudget = new JTextField(
+			String.valueOf(SBOLEditorPreferences.INSTANCE.getExpansionBudget()));
+	private JTextField expansionShardSize = new JTextField(
+			String.valueOf(SBOLEditorPreferences.INSTANCE.getExpansionShardSize()));
+
 	@Override
 	public String getTitle() {
 		return "Settings";
@@ -65,6 +71,8 @@ public enum SettingsTab implements PreferencesTab {
 		builder.add("", showNameOrDisplayId);
 		builder.add("", showName);
 		builder.add("", showDisplayId);
+		builder.add("Combinatorial expansion budget (designs)", expansionBudget);
+		builder.add("Designs per expansion file", expansionShardSize);
 
 		return builder.build();
 	}
@@ -88,6 +96,24 @@ public enum SettingsTab implements PreferencesTab {
 			showNameOrDisplayId = 1;
 		}
 		SBOLEditorPreferences.INSTANCE.setNameDisplayIdBehavior(showNameOrDisplayId);
+
+		try {
+			long budget = Long.parseLong(expansionBudget.getText().trim());
+			if (budget > 0) {
+				SBOLEditorPreferences.INSTANCE.setExpansionBudget(budget);
+			}
+		} catch (NumberFormatException e) {
+			expansionBudget.setText(String.valueOf(SBOLEditorPreferences.INSTANCE.getExpansionBudget()));
+		}
+
+		try {
+			int shardSize = Integer.parseInt(expansionShardSize.getText().trim());
+			if (shardSize > 0) {
+				SBOLEditorPreferences.INSTANCE.setExpansionShardSize(shardSize);
+			}
+		} catch (NumberFormatException e) {
+			expansionShardSize.setText(String.valueOf(SBOLEditorPreferences.INSTANCE.getExpansionShardSize()));
+		}
 	}
 
 	@Override
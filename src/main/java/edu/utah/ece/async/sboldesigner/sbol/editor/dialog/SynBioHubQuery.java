@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import javax.swing.SwingWorker;
 
@@ -14,25 +16,37 @@ import org.synbiohub.frontend.IdentifiedMetadata;
 import org.synbiohub.frontend.SearchCriteria;
 import org.synbiohub.frontend.SearchQuery;
 import org.synbiohub.frontend.SynBioHubException;
-import org.synbiohub.frontend.SynBioHubFrontend;
 
+import edu.utah.ece.async.sboldesigner.sbol.editor.SynBioHubCache;
 import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.RegistryInputDialog.TableUpdater;
 
-public class SynBioHubQuery extends SwingWorker<Object, Object> {
+/**
+ * Fetches the results of a query a page at a time and publishes every page to
+ * the TableUpdater as soon as it arrives. Stops fetching when cancelled.
+ */
+public class SynBioHubQuery extends SwingWorker<Integer, TableMetadata> {
 
+	/**
+	 * The most results a single query fetches.
+	 */
 	public static int QUERY_LIMIT = 10000;
 
-	SynBioHubFrontend synBioHub;
+	/**
+	 * The number of results fetched per request.
+	 */
+	public static int PAGE_SIZE = 500;
+
+	SynBioHubCache synBioHub;
 	Set<URI> roles;
 	Set<URI> types;
 	Set<URI> collections;
 	String filterText;
 	TableUpdater tableUpdater;
-	ArrayList<TableMetadata> identified;
+	int found;
 	LoadingDialog loading;
 	String objectType;
 
-	public SynBioHubQuery(SynBioHubFrontend synbiohub, Set<URI> roles, Set<URI> types, Set<URI> collections,
+	public SynBioHubQuery(SynBioHubCache synbiohub, Set<URI> roles, Set<URI> types, Set<URI> collections,
 			String filterText, String objectType, TableUpdater tableUpdater, Component parent) throws IOException {
 		this.synBioHub = synbiohub;
 		this.roles = roles;
@@ -49,19 +63,19 @@ public class SynBioHubQuery extends SwingWorker<Object, Object> {
 		this.objectType = objectType;
 		this.tableUpdater = tableUpdater;
 		this.loading = new LoadingDialog(parent);
-		this.identified = new ArrayList<TableMetadata>();
+		this.found = 0;
 	}
 
 	@Override
-	protected ArrayList<TableMetadata> doInBackground() throws Exception {
+	protected Integer doInBackground() throws Exception {
 		loading.start();
 
 		// collections are empty, so we show only root collections
 		if (collections.isEmpty()) {
-			ArrayList<IdentifiedMetadata> rootCollections = synBioHub.getRootCollectionMetadata();
+			List<IdentifiedMetadata> rootCollections = synBioHub.getRootCollectionMetadata();
 			if (!rootCollections.isEmpty()) {
-				identified.addAll(getTableMetadata(rootCollections, null));
-				return identified;
+				publishRows(getTableMetadata(rootCollections, null));
+				return found;
 			}
 		}
 
@@ -69,7 +83,7 @@ public class SynBioHubQuery extends SwingWorker<Object, Object> {
 		if (objectType != null && objectType !="" && objectType != "Collection") {
 			for (URI collection : collections) {
 				try {
-					identified.addAll(getTableMetadata(synBioHub.getSubCollectionMetadata(collection), null));
+					publishRows(getTableMetadata(synBioHub.getSubCollectionMetadata(collection), null));
 				} catch (SynBioHubException e1) {
 					MessageDialog.showMessage(null, "There was a problem fetching collections: ", e1.getMessage());
 					e1.printStackTrace();
@@ -78,9 +92,18 @@ public class SynBioHubQuery extends SwingWorker<Object, Object> {
 		}
 
 		// fetch parts
+		SearchQuery query = createSearchQuery(roles, types, collections, filterText, objectType);
+		search(synBioHub, query, this::isCancelled, page -> publishRows(getTableMetadata(null, page)));
+
+		return found;
+	}
+
+	/**
+	 * Creates a query for the parts matching all the criteria.
+	 */
+	static SearchQuery createSearchQuery(Set<URI> roles, Set<URI> types, Set<URI> collections, String filterText,
+			String objectType) {
 		SearchQuery query = new SearchQuery();
-		query.setOffset(0);
-		query.setLimit(QUERY_LIMIT);
 
 		for (URI role : roles) {
 			SearchCriteria criteria = new SearchCriteria();
@@ -117,9 +140,30 @@ public class SynBioHubQuery extends SwingWorker<Object, Object> {
 			query.addCriteria(objectTypeCriteria);
 		}
 
-		identified.addAll(getTableMetadata(null, synBioHub.search(query)));
+		return query;
+	}
 
-		return identified;
+	/**
+	 * Runs query a page at a time, so results show up while the rest loads,
+	 * until QUERY_LIMIT results were fetched or cancelled returns true.
+	 */
+	static void search(SynBioHubCache synBioHub, SearchQuery query, BooleanSupplier cancelled,
+			Consumer<List<IdentifiedMetadata>> pages) throws SynBioHubException {
+		for (int offset = 0; offset < QUERY_LIMIT && !cancelled.getAsBoolean(); offset += PAGE_SIZE) {
+			query.setOffset(offset);
+			query.setLimit(Math.min(PAGE_SIZE, QUERY_LIMIT - offset));
+			List<IdentifiedMetadata> page = synBioHub.search(query);
+			pages.accept(page);
+
+			if (page.size() < PAGE_SIZE) {
+				break;
+			}
+		}
+	}
+
+	private void publishRows(List<TableMetadata> tableMeta) {
+		found += tableMeta.size();
+		publish(tableMeta.toArray(new TableMetadata[0]));
 	}
 
 	/**
@@ -145,9 +189,18 @@ public class SynBioHubQuery extends SwingWorker<Object, Object> {
 		return tableMeta;
 	}
 
+	@Override
+	protected void process(List<TableMetadata> chunks) {
+		if (!isCancelled()) {
+			tableUpdater.addRows(chunks, filterText);
+		}
+	}
+
 	@Override
 	protected void done() {
 		loading.stop();
-		tableUpdater.updateTable(identified, filterText);
+		if (!isCancelled()) {
+			tableUpdater.finish(found, filterText);
+		}
 	}
 }
@@ -2,6 +2,8 @@ package edu.utah.ece.async.sboldesigner.sbol.editor.dialog;
 
 import org.synbiohub.frontend.IdentifiedMetadata;
 
+import edu.utah.ece.async.sboldesigner.sbol.editor.Registry;
+
 /**
  * A wrapper for IdentifiedMetadata that also knows if it's a collection
  */
@@ -11,8 +13,18 @@ public class TableMetadata {
 
 	public IdentifiedMetadata identified;
 
+	/**
+	 * The registry this was found in, or null if it is the selected registry.
+	 */
+	public Registry registry;
+
 	public TableMetadata(IdentifiedMetadata identified, boolean isCollection) {
 		this.identified = identified;
 		this.isCollection = isCollection;
 	}
+
+	public TableMetadata(IdentifiedMetadata identified, Registry registry) {
+		this(identified, false);
+		this.registry = registry;
+	}
 }
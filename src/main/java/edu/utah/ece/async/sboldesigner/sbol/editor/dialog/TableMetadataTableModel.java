@@ -52,4 +52,13 @@ class TableMetadataTableModel extends AbstractListTableModel<TableMetadata> {
 			throw new IndexOutOfBoundsException();
 		}
 	}
+
+	/**
+	 * Returns the strings the filter looks for text in.
+	 */
+	public String[] getSearchText(TableMetadata component) {
+		return new String[] { (String) getField(component, 0), component.identified.getDisplayId(),
+				component.identified.getName(), component.identified.getDescription(),
+				component.identified.getUri() };
+	}
 }
@@ -11,6 +11,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -47,8 +48,10 @@ import org.sbolstandard.core2.StrategyType;
 import org.sbolstandard.core2.VariableComponent;
 
 import edu.utah.ece.async.sboldesigner.sbol.CharSequenceUtil;
+import edu.utah.ece.async.sboldesigner.sbol.CombinatorialCardinality;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.editor.Parts;
+import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
 import edu.utah.ece.async.sboldesigner.swing.AbstractListTableModel;
 import edu.utah.ece.async.sboldesigner.swing.FormBuilder;
 
@@ -68,6 +71,7 @@ public class VariantEditor extends JDialog implements ActionListener {
 	private final JTextField displayId = new JTextField();
 	private final JTextField name = new JTextField();
 	private final JTextField description = new JTextField();
+	private final JLabel designSpaceSize = new JLabel();
 	private JTable table;
 	private JLabel tableLabel;
 	private JScrollPane scroller;
@@ -148,6 +152,8 @@ public class VariantEditor extends JDialog implements ActionListener {
 			builder.add("Derivation display ID", displayId);
 			builder.add("Derivation name", name);
 			builder.add("Derivation description", description);
+			builder.add("Design space size", designSpaceSize);
+			updateDesignSpaceSize();
 			JPanel optionPane = builder.build();
 
 			addButton.addActionListener(this);
@@ -461,9 +467,12 @@ public class VariantEditor extends JDialog implements ActionListener {
 			}
 
 			derivation.removeVariableComponent(variable);
+			SBOLUtils.releaseDisplayId(derivation, "VariableComponent", variable.getDisplayId());
 
 			if (derivation.getVariableComponents().isEmpty()) {
 				design.removeCombinatorialDerivation(derivation);
+				SBOLUtils.releaseDisplayId(design, "CombinatorialDerivation", derivation.getDisplayId(),
+						derivation.getVersion());
 				chosenDerivation = null;
 			}
 		}
@@ -552,6 +561,7 @@ public class VariantEditor extends JDialog implements ActionListener {
 		try {
 			VariableComponent variable = getVariableComponent(operator);
 			variable.setOperator(operator);
+			updateDesignSpaceSize();
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(parent, "Operator cannot be *orMore when strategy is enumerate");
 			e.printStackTrace();
@@ -579,6 +589,24 @@ public class VariantEditor extends JDialog implements ActionListener {
 		setWidthAsPercentages(table, tableModel.getWidths());
 		TableRowSorter<TableModel> sorter = new TableRowSorter<TableModel>(tableModel);
 		table.setRowSorter(sorter);
+		updateDesignSpaceSize();
 	}
 
+	private void updateDesignSpaceSize() {
+		if (chosenDerivation == null) {
+			designSpaceSize.setText("");
+			return;
+		}
+
+		try {
+			String size = CombinatorialCardinality.describe(chosenDerivation);
+			long budget = SBOLEditorPreferences.INSTANCE.getExpansionBudget();
+			if (CombinatorialCardinality.count(chosenDerivation).compareTo(BigInteger.valueOf(budget)) > 0) {
+				size += String.format(", above the expansion budget of %,d", budget);
+			}
+			designSpaceSize.setText(size);
+		} catch (IllegalArgumentException e) {
+			designSpaceSize.setText(e.getMessage());
+		}
+	}
 }
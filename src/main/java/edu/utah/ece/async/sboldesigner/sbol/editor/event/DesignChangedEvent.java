@@ -15,6 +15,11 @@
 
 package edu.utah.ece.async.sboldesigner.sbol.editor.event;
 
+import java.util.Collections;
+import java.util.Set;
+
+import org.sbolstandard.core2.TopLevel;
+
 import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLDesign;
 
 /**
@@ -23,12 +28,26 @@ import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLDesign;
  */
 public class DesignChangedEvent {
 	private final SBOLDesign design;
+	private final Set<TopLevel> changedTopLevels;
 
 	public DesignChangedEvent(SBOLDesign design) {
+		this(design, Collections.<TopLevel> emptySet());
+	}
+
+	public DesignChangedEvent(SBOLDesign design, Set<TopLevel> changedTopLevels) {
 		this.design = design;
+		this.changedTopLevels = Collections.unmodifiableSet(changedTopLevels);
 	}
 
 	public SBOLDesign getDesign() {
 		return design;
 	}
+
+	/**
+	 * The TopLevels that were edited. Objects they reference may have changed
+	 * as well.
+	 */
+	public Set<TopLevel> getChangedTopLevels() {
+		return changedTopLevels;
+	}
 }
@@ -0,0 +1,112 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.io;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import org.sbolstandard.core2.SBOLConversionException;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLWriter;
+
+import edu.utah.ece.async.sboldesigner.sbol.CompressionUtil;
+
+/**
+ * Writes files without ever leaving a partially written file behind. The
+ * content goes into a temporary file next to the target, which is flushed to
+ * the disk and then renamed over the target. If anything fails or the write is
+ * cancelled, the target keeps its old content. Files ending with .gz are
+ * compressed (see CompressionUtil).
+ */
+public class AtomicFileWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	public interface Content {
+		void writeTo(OutputStream out) throws SBOLConversionException, IOException;
+	}
+
+	private AtomicFileWriter() {
+	}
+
+	/**
+	 * Writes doc into file in the format fileType (see SBOLWriter).
+	 */
+	public static void write(File file, SBOLDocument doc, String fileType) throws SBOLConversionException, IOException {
+		write(file, out -> SBOLWriter.write(doc, out, fileType), null, null);
+	}
+
+	/**
+	 * Writes content into file. progress, if not null, is told how many bytes
+	 * were written so far. When cancelled, if not null, returns true the write
+	 * stops with an InterruptedIOException.
+	 */
+	public static void write(File file, Content content, LongConsumer progress, BooleanSupplier cancelled)
+			throws SBOLConversionException, IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("." + file.getName(), ".tmp", directory);
+		boolean written = false;
+		try {
+			try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+				OutputStream compressed = CompressionUtil.compress(file.getName(),
+						new ProgressOutputStream(fileOut, progress, cancelled));
+				OutputStream out = new BufferedOutputStream(compressed, BUFFER_SIZE);
+				content.writeTo(out);
+				out.flush();
+				CompressionUtil.finish(compressed);
+				fileOut.getFD().sync();
+			}
+
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			written = true;
+		} finally {
+			if (!written) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes going through and stops when cancelled.
+	 */
+	private static class ProgressOutputStream extends FilterOutputStream {
+		private final LongConsumer progress;
+		private final BooleanSupplier cancelled;
+		private long count = 0;
+
+		ProgressOutputStream(OutputStream out, LongConsumer progress, BooleanSupplier cancelled) {
+			super(out);
+			this.progress = progress;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (cancelled != null && cancelled.getAsBoolean()) {
+				throw new InterruptedIOException("Writing was cancelled");
+			}
+			out.write(b, off, len);
+			count += len;
+			if (progress != null) {
+				progress.accept(count);
+			}
+		}
+	}
+}
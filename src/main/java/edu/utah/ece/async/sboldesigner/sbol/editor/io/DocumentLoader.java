@@ -0,0 +1,111 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.io;
+
+import java.awt.Component;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+
+import org.sbolstandard.core2.SBOLDocument;
+
+import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
+
+/**
+ * Reads a document in the background, so the editor stays responsive while a
+ * large file is parsed. Progress is shown in a ProgressMonitor, which also
+ * lets the user cancel.
+ * 
+ * Besides the document, an unchanged copy of it is made in the background,
+ * which can be validated while the document itself is being edited.
+ */
+public class DocumentLoader extends SwingWorker<SBOLDocument[], Integer> {
+
+	/**
+	 * Gets the document that was read, on the event dispatch thread.
+	 */
+	public interface Listener {
+		void documentLoaded(SBOLDocument doc, SBOLDocument snapshot);
+	}
+
+	private final Component parent;
+	private final DocumentIO documentIO;
+	private final Listener listener;
+
+	private ProgressMonitor monitor = null;
+
+	/**
+	 * Starts reading the document of documentIO.
+	 */
+	public static DocumentLoader load(Component parent, DocumentIO documentIO, Listener listener) {
+		DocumentLoader loader = new DocumentLoader(parent, documentIO, listener);
+		loader.execute();
+		return loader;
+	}
+
+	private DocumentLoader(Component parent, DocumentIO documentIO, Listener listener) {
+		this.parent = parent;
+		this.documentIO = documentIO;
+		this.listener = listener;
+	}
+
+	@Override
+	protected SBOLDocument[] doInBackground() throws Exception {
+		SBOLDocument doc;
+		if (documentIO instanceof FileDocumentIO) {
+			doc = ((FileDocumentIO) documentIO).read(percent -> publish(percent));
+		} else {
+			doc = documentIO.read();
+		}
+
+		SBOLDocument snapshot = null;
+		try {
+			snapshot = new SBOLDocument();
+			snapshot.setDefaultURIprefix(doc.getDefaultURIprefix());
+			snapshot.createCopy(doc);
+		} catch (Exception e) {
+			// validated when it is loaded instead
+			snapshot = null;
+		}
+		return new SBOLDocument[] { doc, snapshot };
+	}
+
+	@Override
+	protected void process(List<Integer> percents) {
+		if (isDone()) {
+			return;
+		}
+		if (monitor == null) {
+			monitor = new ProgressMonitor(parent, "Opening " + documentIO, "", 0, 100);
+		}
+		if (monitor.isCanceled()) {
+			cancel(true);
+			return;
+		}
+		monitor.setProgress(Math.min(99, percents.get(percents.size() - 1)));
+	}
+
+	@Override
+	protected void done() {
+		if (monitor != null) {
+			monitor.close();
+		}
+
+		try {
+			SBOLDocument[] result = get();
+			listener.documentLoaded(result[0], result[1]);
+		} catch (CancellationException e) {
+			// nothing to do
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (!(e.getCause() instanceof InterruptedIOException)) {
+				MessageDialog.showMessage(parent, "There was a problem opening this document: ",
+						e.getCause().getMessage());
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+}
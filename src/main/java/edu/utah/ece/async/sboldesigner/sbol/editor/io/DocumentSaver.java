@@ -0,0 +1,159 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.io;
+
+import java.awt.Component;
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLWriter;
+
+import edu.utah.ece.async.sboldesigner.sbol.editor.dialog.MessageDialog;
+
+/**
+ * Saves a document in the background, so the editor stays responsive while a
+ * large design is written. Progress is shown in a ProgressMonitor, which also
+ * lets the user cancel; a cancelled or failed save leaves the file as it was
+ * (see AtomicFileWriter). A save that was already replacing the file when it
+ * was cancelled completes, and is reported as saved. Saves run one at a time,
+ * in the order they were started.
+ * 
+ * The document must not change while it is saved, so callers pass a document
+ * the editor doesn't hold on to.
+ */
+public class DocumentSaver extends SwingWorker<Void, Long> {
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Document saver");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Gets told whether the save succeeded, on the event dispatch thread.
+	 */
+	public interface Listener {
+		void saveFinished(boolean saved);
+	}
+
+	private final Component parent;
+	private final SBOLDocument doc;
+	private final File file;
+	private final String fileType;
+	private final Listener listener;
+	private final long expectedSize;
+
+	private ProgressMonitor monitor = null;
+	// checked by the writer, which stops where it is safe to; the save may
+	// still finish after this is set
+	private volatile boolean cancelRequested = false;
+	private boolean finished = false;
+	private boolean saved = false;
+	// set while await is waiting
+	private SecondaryLoop waiting = null;
+
+	/**
+	 * Starts saving doc into file in the format fileType (see SBOLWriter).
+	 * listener may be null.
+	 */
+	public static DocumentSaver save(Component parent, SBOLDocument doc, File file, String fileType,
+			Listener listener) {
+		DocumentSaver saver = new DocumentSaver(parent, doc, file, fileType, listener);
+		EXECUTOR.execute(saver);
+		return saver;
+	}
+
+	private DocumentSaver(Component parent, SBOLDocument doc, File file, String fileType, Listener listener) {
+		this.parent = parent;
+		this.doc = doc;
+		this.file = file;
+		this.fileType = fileType;
+		this.listener = listener;
+		// the old file is the best guess there is
+		this.expectedSize = Math.max(file.length(), 1);
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		AtomicFileWriter.write(file, out -> SBOLWriter.write(doc, out, fileType), this::publish,
+				() -> cancelRequested);
+		if (SBOLDocument.RDF.equals(fileType)) {
+			DocumentSnapshot.write(file, doc);
+		}
+		return null;
+	}
+
+	@Override
+	protected void process(List<Long> written) {
+		if (isDone()) {
+			return;
+		}
+		if (monitor == null) {
+			monitor = new ProgressMonitor(parent, "Saving " + file.getName(), "", 0, 100);
+		}
+		if (monitor.isCanceled()) {
+			// not cancel(true), done would run before the writer has stopped
+			// and couldn't tell whether the file was replaced
+			cancelRequested = true;
+			return;
+		}
+
+		long bytes = written.get(written.size() - 1);
+		monitor.setProgress((int) Math.min(99, bytes * 100 / expectedSize));
+		monitor.setNote(String.format("%.1f MB written", bytes / (1024.0 * 1024.0)));
+	}
+
+	@Override
+	protected void done() {
+		if (monitor != null) {
+			monitor.close();
+		}
+
+		try {
+			get();
+			saved = true;
+		} catch (CancellationException e) {
+			MessageDialog.showMessage(parent, "Saving was cancelled: ", file + " wasn't changed.");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof InterruptedIOException) {
+				MessageDialog.showMessage(parent, "Saving was cancelled: ", file + " wasn't changed.");
+			} else {
+				MessageDialog.showMessage(parent, "There was a problem saving this design: ",
+						e.getCause().getMessage());
+				e.getCause().printStackTrace();
+			}
+		}
+
+		finished = true;
+		if (listener != null) {
+			listener.saveFinished(saved);
+		}
+		if (waiting != null) {
+			waiting.exit();
+		}
+	}
+
+	/**
+	 * Waits for the save to finish, and returns whether it succeeded. Must be
+	 * called on the event dispatch thread, which keeps handling events (and
+	 * painting the progress) while waiting.
+	 */
+	public boolean await() {
+		if (!finished) {
+			waiting = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+			waiting.enter();
+			waiting = null;
+		}
+		return saved;
+	}
+}
@@ -0,0 +1,844 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.joda.time.DateTime;
+import org.sbolstandard.core2.AccessType;
+import org.sbolstandard.core2.Activity;
+import org.sbolstandard.core2.Annotation;
+import org.sbolstandard.core2.Association;
+import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.Component;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.Cut;
+import org.sbolstandard.core2.GenericLocation;
+import org.sbolstandard.core2.Identified;
+import org.sbolstandard.core2.Location;
+import org.sbolstandard.core2.OrientationType;
+import org.sbolstandard.core2.Range;
+import org.sbolstandard.core2.RestrictionType;
+import org.sbolstandard.core2.RoleIntegrationType;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+import org.sbolstandard.core2.Sequence;
+import org.sbolstandard.core2.SequenceAnnotation;
+import org.sbolstandard.core2.SequenceConstraint;
+import org.sbolstandard.core2.TopLevel;
+import org.sbolstandard.core2.Usage;
+
+import com.google.common.io.BaseEncoding;
+
+import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
+
+/**
+ * A binary copy of an SBOL file that is much faster to read than RDF/XML. A
+ * snapshot is taken whenever a file is read or saved as RDF/XML and is stored
+ * in ~/.sboldesigner/cache/snapshots. It is read instead of the file as long as
+ * the file still has the modification time and length it had when the
+ * snapshot was taken. RDF/XML stays the format that is saved and shared.
+ *
+ * Every string is stored once in a table and referred to by its index, and DNA
+ * sequences are packed into two bits per base. Only documents made of
+ * Sequences, ComponentDefinitions, Collections and Activities with compliant
+ * URIs and string or URI annotations are supported. For any other document no
+ * snapshot is taken, so reading a snapshot gives the same document as reading
+ * the file. Every snapshot is also read back before it is stored, and dropped
+ * if it doesn't give the same document, so content the format doesn't know
+ * about is never lost.
+ */
+public class DocumentSnapshot {
+	private static final int MAGIC = 0x53424c53;
+	private static final int FORMAT_VERSION = 2;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final File DIRECTORY = new File(System.getProperty("user.home"),
+			".sboldesigner" + File.separator + "cache" + File.separator + "snapshots");
+
+	// how Sequence elements are stored
+	private static final int RAW = 0;
+	private static final int PACKED_LOWER_CASE = 1;
+	private static final int PACKED_UPPER_CASE = 2;
+	private static final String LOWER_CASE_BASES = "acgt";
+	private static final String UPPER_CASE_BASES = "ACGT";
+
+	// kinds of Location
+	private static final int RANGE = 0;
+	private static final int CUT = 1;
+	private static final int GENERIC_LOCATION = 2;
+
+	// kinds of annotation values
+	private static final int STRING_VALUE = 0;
+	private static final int URI_VALUE = 1;
+
+	private DocumentSnapshot() {
+	}
+
+	/**
+	 * Returns the document in the snapshot of source, or null if there is no
+	 * up to date snapshot.
+	 */
+	public static SBOLDocument read(File source) {
+		try {
+			File snapshot = getSnapshotFile(source);
+			if (!snapshot.isFile()) {
+				return null;
+			}
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(snapshot), BUFFER_SIZE))) {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+						|| !source.getCanonicalPath().equals(in.readUTF()) || in.readLong() != source.lastModified()
+						|| in.readLong() != source.length() || !getURIPrefix().equals(in.readUTF())) {
+					return null;
+				}
+				return readContent(in, snapshot.length());
+			}
+		} catch (IOException | SBOLValidationException | RuntimeException e) {
+			// source is read instead
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Takes a snapshot of doc, which was just read from or written into
+	 * source. If doc isn't supported, the old snapshot of source is removed.
+	 */
+	public static void write(File source, SBOLDocument doc) {
+		File temp = null;
+		File snapshot = null;
+		try {
+			snapshot = getSnapshotFile(source);
+			byte[] content = encode(doc);
+			if (content == null) {
+				snapshot.delete();
+				return;
+			}
+
+			DIRECTORY.mkdirs();
+			temp = File.createTempFile("snapshot", ".tmp", DIRECTORY);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(source.getCanonicalPath());
+				out.writeLong(source.lastModified());
+				out.writeLong(source.length());
+				out.writeUTF(getURIPrefix());
+				out.write(content);
+			}
+			Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// source is read again next time
+			e.printStackTrace();
+			if (snapshot != null) {
+				snapshot.delete();
+			}
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot of doc without the header that ties it to a file.
+	 */
+	static void writeContent(SBOLDocument doc, DataOutputStream out) throws IOException, UnsupportedContentException {
+		Writer writer = new Writer();
+		writer.writeDocument(doc);
+		writer.writeTo(out);
+	}
+
+	/**
+	 * Returns the content of a snapshot of doc, or null if doc can't be
+	 * stored in one. That includes anything the format leaves out that shows
+	 * up in SBOLDocument.equals, which is found by reading the content back.
+	 */
+	static byte[] encode(SBOLDocument doc) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writeContent(doc, out);
+		} catch (UnsupportedContentException e) {
+			return null;
+		}
+		byte[] content = bytes.toByteArray();
+		return readsBack(doc, content) ? content : null;
+	}
+
+	/**
+	 * Whether reading content gives doc.
+	 */
+	static boolean readsBack(SBOLDocument doc, byte[] content) throws IOException {
+		try {
+			return doc.equals(readContent(new DataInputStream(new ByteArrayInputStream(content)), content.length));
+		} catch (SBOLValidationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads what writeContent wrote. in has at most limit bytes left, which
+	 * bounds every count, so a corrupt snapshot can't make the reader
+	 * allocate more than that.
+	 */
+	static SBOLDocument readContent(DataInputStream in, long limit) throws IOException, SBOLValidationException {
+		return new Reader(in, limit).readDocument();
+	}
+
+	private static File getSnapshotFile(File source) throws IOException {
+		return new File(DIRECTORY, hash(source.getCanonicalPath()));
+	}
+
+	private static String getURIPrefix() {
+		return SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString();
+	}
+
+	private static String hash(String s) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return BaseEncoding.base16().lowerCase().encode(digest.digest(s.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Thrown for documents that can't be stored in a snapshot.
+	 */
+	static class UnsupportedContentException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedContentException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Collects the strings into the table while the objects are written into
+	 * the body, so the table can be written first.
+	 */
+	private static class Writer {
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+
+		void writeDocument(SBOLDocument doc) throws UnsupportedContentException {
+			int supported = doc.getSequences().size() + doc.getComponentDefinitions().size()
+					+ doc.getCollections().size() + doc.getActivities().size();
+			if (supported != doc.getTopLevels().size()) {
+				throw new UnsupportedContentException("Unsupported TopLevels");
+			}
+
+			List<QName> namespaces = doc.getNamespaces();
+			writeInt(namespaces.size());
+			for (QName namespace : namespaces) {
+				writeString(namespace.getNamespaceURI());
+				writeString(namespace.getPrefix());
+			}
+
+			writeInt(doc.getSequences().size());
+			for (Sequence sequence : doc.getSequences()) {
+				writeTopLevel(sequence);
+				writeURI(sequence.getEncoding());
+				writeElements(sequence);
+			}
+
+			writeInt(doc.getComponentDefinitions().size());
+			for (ComponentDefinition cd : doc.getComponentDefinitions()) {
+				writeComponentDefinition(cd);
+			}
+
+			writeInt(doc.getCollections().size());
+			for (Collection collection : doc.getCollections()) {
+				writeTopLevel(collection);
+				writeURIs(collection.getMemberURIs());
+			}
+
+			writeInt(doc.getActivities().size());
+			for (Activity activity : doc.getActivities()) {
+				writeActivity(activity);
+			}
+		}
+
+		private void writeComponentDefinition(ComponentDefinition cd) throws UnsupportedContentException {
+			writeTopLevel(cd);
+			writeURIs(cd.getTypes());
+			writeURIs(cd.getRoles());
+			writeURIs(cd.getSequenceURIs());
+
+			writeInt(cd.getComponents().size());
+			for (Component component : cd.getComponents()) {
+				if (!component.getMapsTos().isEmpty()) {
+					throw new UnsupportedContentException("MapsTos");
+				}
+				if (!component.getSourceLocationURIs().isEmpty()) {
+					throw new UnsupportedContentException("Source locations");
+				}
+				writeChild(component, cd);
+				writeString(component.getAccess().name());
+				writeURI(component.getDefinitionURI());
+				writeURIs(component.getRoles());
+				writeString(component.getRoleIntegration() == null ? null : component.getRoleIntegration().name());
+			}
+
+			writeInt(cd.getSequenceAnnotations().size());
+			for (SequenceAnnotation annotation : cd.getSequenceAnnotations()) {
+				writeChild(annotation, cd);
+				writeURIs(annotation.getRoles());
+				writeURI(annotation.getComponentURI());
+				writeInt(annotation.getLocations().size());
+				for (Location location : annotation.getLocations()) {
+					writeChild(location, annotation);
+					if (location instanceof Range) {
+						writeInt(RANGE);
+						writeInt(((Range) location).getStart());
+						writeInt(((Range) location).getEnd());
+					} else if (location instanceof Cut) {
+						writeInt(CUT);
+						writeInt(((Cut) location).getAt());
+					} else if (location instanceof GenericLocation) {
+						writeInt(GENERIC_LOCATION);
+					} else {
+						throw new UnsupportedContentException("Unsupported location " + location.getIdentity());
+					}
+					writeString(location.getOrientation() == null ? null : location.getOrientation().name());
+					writeURI(location.getSequenceURI());
+				}
+			}
+
+			writeInt(cd.getSequenceConstraints().size());
+			for (SequenceConstraint constraint : cd.getSequenceConstraints()) {
+				writeChild(constraint, cd);
+				writeString(constraint.getRestriction().name());
+				writeURI(constraint.getSubjectURI());
+				writeURI(constraint.getObjectURI());
+			}
+		}
+
+		private void writeActivity(Activity activity) throws UnsupportedContentException {
+			writeTopLevel(activity);
+			writeString(activity.getStartedAtTime() == null ? null : activity.getStartedAtTime().toString());
+			writeString(activity.getEndedAtTime() == null ? null : activity.getEndedAtTime().toString());
+			writeURIs(activity.getWasInformedByURIs());
+
+			writeInt(activity.getUsages().size());
+			for (Usage usage : activity.getUsages()) {
+				writeChild(usage, activity);
+				writeURI(usage.getEntityURI());
+				writeURIs(usage.getRoles());
+			}
+
+			writeInt(activity.getAssociations().size());
+			for (Association association : activity.getAssociations()) {
+				writeChild(association, activity);
+				writeURI(association.getAgentURI());
+				writeURI(association.getPlanURI());
+				writeURIs(association.getRoles());
+			}
+		}
+
+		/**
+		 * Writes what's needed to create topLevel again with the same
+		 * identity.
+		 */
+		private void writeTopLevel(TopLevel topLevel) throws UnsupportedContentException {
+			String displayId = topLevel.getDisplayId();
+			String persistentIdentity = String.valueOf(topLevel.getPersistentIdentity());
+			if (displayId == null || !persistentIdentity.endsWith("/" + displayId)) {
+				throw new UnsupportedContentException("Non-compliant URI " + topLevel.getIdentity());
+			}
+			checkIdentity(topLevel, persistentIdentity);
+			if (!topLevel.getAttachmentURIs().isEmpty()) {
+				throw new UnsupportedContentException("Attachments");
+			}
+
+			writeString(persistentIdentity.substring(0, persistentIdentity.length() - displayId.length()));
+			writeString(displayId);
+			writeString(topLevel.getVersion());
+			writeIdentified(topLevel);
+		}
+
+		/**
+		 * Writes what's needed to create child of parent again with the same
+		 * identity.
+		 */
+		private void writeChild(Identified child, Identified parent) throws UnsupportedContentException {
+			if (child.getDisplayId() == null || !Objects.equals(child.getVersion(), parent.getVersion())) {
+				throw new UnsupportedContentException("Non-compliant URI " + child.getIdentity());
+			}
+			checkIdentity(child, parent.getPersistentIdentity() + "/" + child.getDisplayId());
+
+			writeString(child.getDisplayId());
+			writeIdentified(child);
+		}
+
+		private static void checkIdentity(Identified identified, String persistentIdentity)
+				throws UnsupportedContentException {
+			String version = identified.getVersion();
+			String identity = version == null || version.isEmpty() ? persistentIdentity
+					: persistentIdentity + "/" + version;
+			if (!persistentIdentity.equals(String.valueOf(identified.getPersistentIdentity()))
+					|| !identity.equals(identified.getIdentity().toString())) {
+				throw new UnsupportedContentException("Non-compliant URI " + identified.getIdentity());
+			}
+		}
+
+		private void writeIdentified(Identified identified) throws UnsupportedContentException {
+			writeString(identified.getName());
+			writeString(identified.getDescription());
+			writeURIs(identified.getWasDerivedFroms());
+			writeURIs(identified.getWasGeneratedBys());
+
+			List<Annotation> annotations = identified.getAnnotations();
+			writeInt(annotations.size());
+			for (Annotation annotation : annotations) {
+				QName name = annotation.getQName();
+				writeString(name.getNamespaceURI());
+				writeString(name.getLocalPart());
+				writeString(name.getPrefix());
+				if (annotation.isStringValue()) {
+					writeInt(STRING_VALUE);
+					writeString(annotation.getStringValue());
+				} else if (annotation.isURIValue()) {
+					writeInt(URI_VALUE);
+					writeURI(annotation.getURIValue());
+				} else {
+					throw new UnsupportedContentException("Unsupported annotation " + name);
+				}
+			}
+		}
+
+		private void writeElements(Sequence sequence) {
+			String elements = sequence.getElements();
+			int packing = RAW;
+			if (Sequence.IUPAC_DNA.equals(sequence.getEncoding()) && !elements.isEmpty()) {
+				if (containsOnly(elements, LOWER_CASE_BASES)) {
+					packing = PACKED_LOWER_CASE;
+				} else if (containsOnly(elements, UPPER_CASE_BASES)) {
+					packing = PACKED_UPPER_CASE;
+				}
+			}
+
+			writeInt(packing);
+			if (packing == RAW) {
+				writeBytes(elements.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			String bases = packing == PACKED_LOWER_CASE ? LOWER_CASE_BASES : UPPER_CASE_BASES;
+			byte[] packed = new byte[(elements.length() + 3) / 4];
+			for (int i = 0; i < elements.length(); i++) {
+				packed[i >> 2] |= bases.indexOf(elements.charAt(i)) << ((i & 3) * 2);
+			}
+			writeInt(elements.length());
+			body.write(packed, 0, packed.length);
+		}
+
+		private static boolean containsOnly(String s, String chars) {
+			for (int i = 0; i < s.length(); i++) {
+				if (chars.indexOf(s.charAt(i)) < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void writeURIs(Set<URI> uris) {
+			writeInt(uris.size());
+			for (URI uri : uris) {
+				writeURI(uri);
+			}
+		}
+
+		private void writeURI(URI uri) {
+			writeString(uri == null ? null : uri.toString());
+		}
+
+		/**
+		 * Writes the index of s in the table plus one, or 0 for null.
+		 */
+		private void writeString(String s) {
+			if (s == null) {
+				writeInt(0);
+				return;
+			}
+			Integer index = indexes.get(s);
+			if (index == null) {
+				index = strings.size();
+				indexes.put(s, index);
+				strings.add(s);
+			}
+			writeInt(index + 1);
+		}
+
+		private void writeBytes(byte[] bytes) {
+			writeInt(bytes.length);
+			body.write(bytes, 0, bytes.length);
+		}
+
+		/**
+		 * Writes a non-negative int in 7 bit groups, low group first.
+		 */
+		private void writeInt(int value) {
+			writeInt(body, value);
+		}
+
+		private static void writeInt(ByteArrayOutputStream out, int value) {
+			while ((value & ~0x7f) != 0) {
+				out.write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			ByteArrayOutputStream table = new ByteArrayOutputStream(BUFFER_SIZE);
+			writeInt(table, strings.size());
+			for (String s : strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeInt(table, bytes.length);
+				table.write(bytes, 0, bytes.length);
+			}
+			table.writeTo(out);
+			body.writeTo(out);
+		}
+	}
+
+	/**
+	 * Reads what Writer wrote.
+	 */
+	private static class Reader {
+		private final DataInputStream in;
+		// every counted item takes at least one byte
+		private final long limit;
+		private String[] strings;
+
+		Reader(DataInputStream in, long limit) {
+			this.in = in;
+			this.limit = limit;
+		}
+
+		SBOLDocument readDocument() throws IOException, SBOLValidationException {
+			strings = new String[readCount()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = new String(readBytes(), StandardCharsets.UTF_8);
+			}
+
+			SBOLDocument doc = new SBOLDocument();
+			Set<String> namespaces = new HashSet<>();
+			for (QName namespace : doc.getNamespaces()) {
+				namespaces.add(namespace.getNamespaceURI());
+			}
+			for (int i = readCount(); i > 0; i--) {
+				String namespace = readString();
+				String prefix = readString();
+				if (namespaces.add(namespace)) {
+					doc.addNamespace(URI.create(namespace), prefix);
+				}
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String prefix = readString();
+				String displayId = readString();
+				String version = readString();
+				Fields fields = readFields();
+				URI encoding = readURI();
+				Sequence sequence = doc.createSequence(prefix, displayId, version, readElements(), encoding);
+				fields.applyTo(sequence);
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				readComponentDefinition(doc);
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String prefix = readString();
+				String displayId = readString();
+				String version = readString();
+				Fields fields = readFields();
+				Collection collection = doc.createCollection(prefix, displayId, version);
+				fields.applyTo(collection);
+				for (URI member : readURIs()) {
+					collection.addMember(member);
+				}
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				readActivity(doc);
+			}
+			return doc;
+		}
+
+		private void readComponentDefinition(SBOLDocument doc) throws IOException, SBOLValidationException {
+			String prefix = readString();
+			String displayId = readString();
+			String version = readString();
+			Fields fields = readFields();
+			ComponentDefinition cd = doc.createComponentDefinition(prefix, displayId, version, readURIs());
+			fields.applyTo(cd);
+			cd.setRoles(readURIs());
+			for (URI sequence : readURIs()) {
+				cd.addSequence(sequence);
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String componentId = readString();
+				Fields componentFields = readFields();
+				AccessType access = AccessType.valueOf(readString());
+				Component component = cd.createComponent(componentId, access, readURI());
+				componentFields.applyTo(component);
+				component.setRoles(readURIs());
+				String roleIntegration = readString();
+				if (roleIntegration != null) {
+					component.setRoleIntegration(RoleIntegrationType.valueOf(roleIntegration));
+				}
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				readSequenceAnnotation(cd);
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String constraintId = readString();
+				Fields constraintFields = readFields();
+				RestrictionType restriction = RestrictionType.valueOf(readString());
+				URI subject = readURI();
+				URI object = readURI();
+				SequenceConstraint constraint = cd.createSequenceConstraint(constraintId, restriction, subject,
+						object);
+				constraintFields.applyTo(constraint);
+			}
+		}
+
+		private void readSequenceAnnotation(ComponentDefinition cd) throws IOException, SBOLValidationException {
+			String annotationId = readString();
+			Fields fields = readFields();
+			Set<URI> roles = readURIs();
+			URI component = readURI();
+
+			SequenceAnnotation annotation = null;
+			for (int i = readCount(); i > 0; i--) {
+				String locationId = readString();
+				Fields locationFields = readFields();
+				int kind = readInt();
+				int start = kind == GENERIC_LOCATION ? 0 : readInt();
+				int end = kind == RANGE ? readInt() : 0;
+				String orientationName = readString();
+				OrientationType orientation = orientationName == null ? null
+						: OrientationType.valueOf(orientationName);
+				URI sequence = readURI();
+
+				Location location;
+				if (annotation == null) {
+					// a SequenceAnnotation is created with its first location
+					if (kind == RANGE) {
+						annotation = cd.createSequenceAnnotation(annotationId, locationId, start, end, orientation);
+					} else if (kind == CUT) {
+						annotation = cd.createSequenceAnnotation(annotationId, locationId, start, orientation);
+					} else {
+						annotation = cd.createSequenceAnnotation(annotationId, locationId, orientation);
+					}
+					location = annotation.getLocation(locationId);
+				} else if (kind == RANGE) {
+					location = annotation.addRange(locationId, start, end, orientation);
+				} else if (kind == CUT) {
+					location = annotation.addCut(locationId, start, orientation);
+				} else {
+					location = annotation.addGenericLocation(locationId);
+					location.setOrientation(orientation);
+				}
+				locationFields.applyTo(location);
+				if (sequence != null) {
+					location.setSequence(sequence);
+				}
+			}
+			if (annotation == null) {
+				throw new IOException("SequenceAnnotation " + annotationId + " has no location");
+			}
+
+			fields.applyTo(annotation);
+			annotation.setRoles(roles);
+			if (component != null) {
+				annotation.setComponent(component);
+			}
+		}
+
+		private void readActivity(SBOLDocument doc) throws IOException, SBOLValidationException {
+			String prefix = readString();
+			String displayId = readString();
+			String version = readString();
+			Fields fields = readFields();
+			Activity activity = doc.createActivity(prefix, displayId, version);
+			fields.applyTo(activity);
+			String startedAt = readString();
+			if (startedAt != null) {
+				activity.setStartedAtTime(DateTime.parse(startedAt));
+			}
+			String endedAt = readString();
+			if (endedAt != null) {
+				activity.setEndedAtTime(DateTime.parse(endedAt));
+			}
+			for (URI informedBy : readURIs()) {
+				activity.addWasInformedBy(informedBy);
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String usageId = readString();
+				Fields usageFields = readFields();
+				Usage usage = activity.createUsage(usageId, readURI());
+				usageFields.applyTo(usage);
+				usage.setRoles(readURIs());
+			}
+
+			for (int i = readCount(); i > 0; i--) {
+				String associationId = readString();
+				Fields associationFields = readFields();
+				Association association = activity.createAssociation(associationId, readURI());
+				associationFields.applyTo(association);
+				URI plan = readURI();
+				if (plan != null) {
+					association.setPlan(plan);
+				}
+				association.setRoles(readURIs());
+			}
+		}
+
+		private Fields readFields() throws IOException {
+			Fields fields = new Fields();
+			fields.name = readString();
+			fields.description = readString();
+			fields.wasDerivedFroms = readURIs();
+			fields.wasGeneratedBys = readURIs();
+			for (int i = readCount(); i > 0; i--) {
+				QName name = new QName(readString(), readString(), readString());
+				if (readInt() == STRING_VALUE) {
+					fields.annotations.add(new Annotation(name, readString()));
+				} else {
+					fields.annotations.add(new Annotation(name, readURI()));
+				}
+			}
+			return fields;
+		}
+
+		private String readElements() throws IOException {
+			int packing = readInt();
+			if (packing == RAW) {
+				return new String(readBytes(), StandardCharsets.UTF_8);
+			}
+			String bases = packing == PACKED_LOWER_CASE ? LOWER_CASE_BASES : UPPER_CASE_BASES;
+			int length = readInt();
+			// four bases to a byte
+			if (length < 0 || length > limit * 4) {
+				throw new IOException("Malformed snapshot");
+			}
+			char[] elements = new char[length];
+			byte[] packed = new byte[(elements.length + 3) / 4];
+			in.readFully(packed);
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = bases.charAt((packed[i >> 2] >> ((i & 3) * 2)) & 3);
+			}
+			return new String(elements);
+		}
+
+		private Set<URI> readURIs() throws IOException {
+			Set<URI> uris = new HashSet<>();
+			for (int i = readCount(); i > 0; i--) {
+				uris.add(readURI());
+			}
+			return uris;
+		}
+
+		private URI readURI() throws IOException {
+			String s = readString();
+			return s == null ? null : URI.create(s);
+		}
+
+		private String readString() throws IOException {
+			int index = readInt();
+			if (index < 0 || index > strings.length) {
+				throw new IOException("Malformed snapshot");
+			}
+			return index == 0 ? null : strings[index - 1];
+		}
+
+		private byte[] readBytes() throws IOException {
+			byte[] bytes = new byte[readCount()];
+			in.readFully(bytes);
+			return bytes;
+		}
+
+		/**
+		 * Reads the number of items that follow.
+		 */
+		private int readCount() throws IOException {
+			int count = readInt();
+			if (count < 0 || count > limit) {
+				throw new IOException("Malformed snapshot");
+			}
+			return count;
+		}
+
+		private int readInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = in.readUnsignedByte();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed snapshot");
+		}
+	}
+
+	/**
+	 * The Identified fields that are set after an object is created.
+	 */
+	private static class Fields {
+		String name;
+		String description;
+		Set<URI> wasDerivedFroms;
+		Set<URI> wasGeneratedBys;
+		final List<Annotation> annotations = new ArrayList<>();
+
+		void applyTo(Identified identified) throws SBOLValidationException {
+			if (name != null) {
+				identified.setName(name);
+			}
+			if (description != null) {
+				identified.setDescription(description);
+			}
+			identified.setWasDerivedFroms(wasDerivedFroms);
+			identified.setWasGeneratedBys(wasGeneratedBys);
+			for (Annotation annotation : annotations) {
+				if (annotation.isStringValue()) {
+					identified.createAnnotation(annotation.getQName(), annotation.getStringValue());
+				} else {
+					identified.createAnnotation(annotation.getQName(), annotation.getURIValue());
+				}
+			}
+		}
+	}
+}
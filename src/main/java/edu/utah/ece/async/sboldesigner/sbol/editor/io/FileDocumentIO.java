@@ -15,11 +15,15 @@
 
 package edu.utah.ece.async.sboldesigner.sbol.editor.io;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.function.IntConsumer;
 import java.util.prefs.Preferences;
 
 import org.openrdf.rio.RDFFormat;
@@ -27,8 +31,8 @@ import org.sbolstandard.core2.SBOLConversionException;
 import org.sbolstandard.core2.SBOLDocument;
 import org.sbolstandard.core2.SBOLReader;
 import org.sbolstandard.core2.SBOLValidationException;
-import org.sbolstandard.core2.SBOLWriter;
 
+import edu.utah.ece.async.sboldesigner.sbol.CompressionUtil;
 import edu.utah.ece.async.sboldesigner.sbol.SBOLUtils;
 import edu.utah.ece.async.sboldesigner.sbol.editor.SBOLEditorPreferences;
 
@@ -56,13 +60,32 @@ public class FileDocumentIO implements DocumentIO {
 	@Override
 	public SBOLDocument read()
 			throws SBOLValidationException, FileNotFoundException, IOException, SBOLConversionException {
+		return read(null);
+	}
+
+	/**
+	 * Like read, but tells progress, if not null, how much of the file was
+	 * read so far in percent. Stops with an InterruptedIOException when the
+	 * reading thread is interrupted. An up to date DocumentSnapshot of the file
+	 * is read instead of the file itself. Files ending with .gz are
+	 * decompressed.
+	 */
+	public SBOLDocument read(IntConsumer progress)
+			throws SBOLValidationException, FileNotFoundException, IOException, SBOLConversionException {
 		// return reader.read(new FileInputStream(file));
 		File file = SBOLUtils.setupFile();
-		SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
-		SBOLReader.setCompliant(true);
-		FileInputStream stream = new FileInputStream(file);
-		SBOLDocument doc = SBOLReader.read(stream);
-		stream.close();
+		SBOLDocument doc = DocumentSnapshot.read(file);
+		if (doc == null) {
+			try (InputStream stream = CompressionUtil.decompress(file.getName(), new ProgressInputStream(
+					new BufferedInputStream(new FileInputStream(file)), file.length(), progress))) {
+				synchronized (SBOLUtils.READER_LOCK) {
+					SBOLReader.setURIPrefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
+					SBOLReader.setCompliant(true);
+					doc = SBOLReader.read(stream);
+				}
+			}
+			DocumentSnapshot.write(file, doc);
+		}
 		Preferences.userRoot().node("path").put("path", file.getPath());
 		doc.setDefaultURIprefix(SBOLEditorPreferences.INSTANCE.getUserInfo().getURI().toString());
 		return doc;
@@ -71,13 +94,67 @@ public class FileDocumentIO implements DocumentIO {
 	@Override
 	public void write(SBOLDocument doc) throws SBOLValidationException, SBOLConversionException, IOException {
 		// writer.write(doc, new FileOutputStream(file));
+		File file = getFileToWrite();
+		AtomicFileWriter.write(file, doc, SBOLDocument.RDF);
+		DocumentSnapshot.write(file, doc);
+	}
+
+	/**
+	 * Returns the file write saves into. A file name without an extension
+	 * gets ".xml".
+	 */
+	public static File getFileToWrite() {
 		File file = SBOLUtils.setupFile();
 		String fileName = file.getName();
 		if (!fileName.contains(".")) {
 			file = new File(file + ".xml");
 			Preferences.userRoot().node("path").put("path", file.getPath());
 		}
-		SBOLWriter.write(doc, new FileOutputStream(file));
+		return file;
+	}
+
+	/**
+	 * Counts the bytes going through and stops when the thread is
+	 * interrupted.
+	 */
+	private static class ProgressInputStream extends FilterInputStream {
+		private final long length;
+		private final IntConsumer progress;
+		private long count = 0;
+
+		ProgressInputStream(InputStream in, long length, IntConsumer progress) {
+			super(in);
+			this.length = Math.max(length, 1);
+			this.progress = progress;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Reading was cancelled");
+			}
+			int read = in.read(b, off, len);
+			if (read > 0) {
+				count += read;
+				if (progress != null) {
+					progress.accept((int) (count * 100 / length));
+				}
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
 	}
 
 	@Override
@@ -40,6 +40,19 @@ public abstract class AbstractListTableModel<T> extends AbstractTableModel {
 		fireTableDataChanged();
 	}
 
+	/**
+	 * Appends components to the rows. The list given to the constructor or
+	 * setElements must be modifiable.
+	 */
+	public void addElements(List<T> components) {
+		if (components.isEmpty()) {
+			return;
+		}
+		int firstRow = elements.size();
+		elements.addAll(components);
+		fireTableRowsInserted(firstRow, elements.size() - 1);
+	}
+
 	public int getColumnCount() {
 		return columns.length;
 	}
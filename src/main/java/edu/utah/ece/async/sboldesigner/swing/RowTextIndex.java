@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2012 - 2015, Clark & Parsia, LLC. <http://www.clarkparsia.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.utah.ece.async.sboldesigner.swing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * Finds the rows of an AbstractListTableModel whose text contains a string
+ * without looking at every row. Every three character substring of a row's
+ * text lists the rows containing it, so a search only has to check the rows
+ * that are in the lists of all the query's substrings. A query that extends
+ * the previous one only checks the rows that matched before. Rows added to the
+ * model are indexed as they arrive.
+ */
+public class RowTextIndex<T> implements TableModelListener {
+	private static final int GRAM_LENGTH = 3;
+
+	private final AbstractListTableModel<T> model;
+	private final Function<T, String[]> fields;
+
+	// the lower case text of every row
+	private final List<String> texts = new ArrayList<String>();
+	private final Map<String, Postings> postings = new HashMap<String, Postings>();
+
+	private String lastQuery = null;
+	private BitSet lastMatches = null;
+
+	/**
+	 * fields returns the strings of a row that are searched.
+	 */
+	public RowTextIndex(AbstractListTableModel<T> model, Function<T, String[]> fields) {
+		this.model = model;
+		this.fields = fields;
+		model.addTableModelListener(this);
+		rebuild();
+	}
+
+	public AbstractListTableModel<T> getModel() {
+		return model;
+	}
+
+	@Override
+	public void tableChanged(TableModelEvent e) {
+		if (e.getType() == TableModelEvent.INSERT && e.getFirstRow() == texts.size()) {
+			for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+				add(row);
+			}
+		} else {
+			rebuild();
+		}
+		lastQuery = null;
+		lastMatches = null;
+	}
+
+	private void rebuild() {
+		texts.clear();
+		postings.clear();
+		for (int row = 0; row < model.getRowCount(); row++) {
+			add(row);
+		}
+	}
+
+	private void add(int row) {
+		StringBuilder sb = new StringBuilder();
+		for (String field : fields.apply(model.getElement(row))) {
+			if (field != null) {
+				sb.append(field.toLowerCase(Locale.ROOT)).append('\n');
+			}
+		}
+		String text = sb.toString();
+		texts.add(text);
+
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+			grams.add(text.substring(i, i + GRAM_LENGTH));
+		}
+		for (String gram : grams) {
+			Postings rows = postings.get(gram);
+			if (rows == null) {
+				rows = new Postings();
+				postings.put(gram, rows);
+			}
+			rows.add(row);
+		}
+	}
+
+	/**
+	 * Returns the model rows containing query, ignoring case, or null if all
+	 * the rows match.
+	 */
+	public BitSet search(String query) {
+		String q = query.toLowerCase(Locale.ROOT);
+		if (q.isEmpty()) {
+			return null;
+		}
+
+		BitSet matches = new BitSet(texts.size());
+		if (lastQuery != null && q.contains(lastQuery)) {
+			// only the rows that matched before can match
+			for (int row = lastMatches.nextSetBit(0); row >= 0; row = lastMatches.nextSetBit(row + 1)) {
+				check(row, q, matches);
+			}
+		} else if (q.length() >= GRAM_LENGTH) {
+			Postings[] candidates = getPostings(q);
+			if (candidates != null) {
+				Postings smallest = candidates[0];
+				for (int i = 0; i < smallest.size; i++) {
+					int row = smallest.rows[i];
+					if (containedInAll(row, candidates)) {
+						check(row, q, matches);
+					}
+				}
+			}
+		} else {
+			for (int row = 0; row < texts.size(); row++) {
+				check(row, q, matches);
+			}
+		}
+
+		lastQuery = q;
+		lastMatches = matches;
+		return matches;
+	}
+
+	private void check(int row, String q, BitSet matches) {
+		if (texts.get(row).contains(q)) {
+			matches.set(row);
+		}
+	}
+
+	/**
+	 * Returns the rows of every substring of q, smallest first, or null if
+	 * some substring isn't in any row.
+	 */
+	private Postings[] getPostings(String q) {
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i + GRAM_LENGTH <= q.length(); i++) {
+			grams.add(q.substring(i, i + GRAM_LENGTH));
+		}
+
+		Postings[] result = new Postings[grams.size()];
+		int i = 0;
+		for (String gram : grams) {
+			Postings rows = postings.get(gram);
+			if (rows == null) {
+				return null;
+			}
+			result[i++] = rows;
+		}
+		Arrays.sort(result, new Comparator<Postings>() {
+			@Override
+			public int compare(Postings p1, Postings p2) {
+				return Integer.compare(p1.size, p2.size);
+			}
+		});
+		return result;
+	}
+
+	private static boolean containedInAll(int row, Postings[] candidates) {
+		for (int i = 1; i < candidates.length; i++) {
+			if (Arrays.binarySearch(candidates[i].rows, 0, candidates[i].size, row) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The rows containing a substring, in increasing order.
+	 */
+	private static class Postings {
+		private int[] rows = new int[4];
+		private int size = 0;
+
+		private void add(int row) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size++] = row;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CombinatorialSamplerTest {
+	@Test
+	public void indexesAreDistinctAndInRange() {
+		Random random = new Random(42);
+		BigInteger size = BigInteger.valueOf(100);
+		for (int n = 1; n <= 100; n++) {
+			Set<BigInteger> indexes = CombinatorialSampler.sampleIndexes(size, n, random);
+			assertEquals(n, indexes.size());
+			for (BigInteger index : indexes) {
+				assertTrue(index.signum() >= 0);
+				assertTrue(index.compareTo(size) < 0);
+			}
+		}
+	}
+
+	@Test
+	public void everyIndexWhenNIsAtLeastTheSize() {
+		Random random = new Random(7);
+		for (int n : new int[] { 10, 11, 1000 }) {
+			Set<BigInteger> indexes = CombinatorialSampler.sampleIndexes(BigInteger.TEN, n, random);
+			Set<BigInteger> expected = new HashSet<>();
+			for (int i = 0; i < 10; i++) {
+				expected.add(BigInteger.valueOf(i));
+			}
+			assertEquals(expected, indexes);
+		}
+	}
+
+	@Test
+	public void hugeSpaces() {
+		BigInteger size = BigInteger.ONE.shiftLeft(200);
+		Set<BigInteger> indexes = CombinatorialSampler.sampleIndexes(size, 1000, new Random(1));
+		assertEquals(1000, indexes.size());
+		for (BigInteger index : indexes) {
+			assertTrue(index.signum() >= 0);
+			assertTrue(index.compareTo(size) < 0);
+		}
+	}
+
+	@Test
+	public void indexesAreUniform() {
+		// every index of a small space should be drawn about equally often
+		Random random = new Random(3);
+		int[] counts = new int[8];
+		int rounds = 40000;
+		for (int round = 0; round < rounds; round++) {
+			for (BigInteger index : CombinatorialSampler.sampleIndexes(BigInteger.valueOf(8), 3, random)) {
+				counts[index.intValue()]++;
+			}
+		}
+		double expected = rounds * 3 / 8.0;
+		for (int count : counts) {
+			assertTrue(Math.abs(count - expected) < expected * 0.05);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLValidationException;
+
+public class DisplayIdAllocatorTest {
+	@Test
+	public void skipsTakenDisplayIds() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		taken.add("part");
+		taken.add("part3");
+
+		assertEquals("part1", allocate(allocator, taken, "part", "1"));
+		assertEquals("part2", allocate(allocator, taken, "part", "1"));
+		assertEquals("part4", allocate(allocator, taken, "part", "1"));
+	}
+
+	@Test
+	public void releasedDisplayIdsAreHandedOutAgain() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		assertEquals("part", allocate(allocator, taken, "part", "1"));
+		assertEquals("part1", allocate(allocator, taken, "part", "1"));
+		assertEquals("part2", allocate(allocator, taken, "part", "1"));
+
+		taken.remove("part1");
+		allocator.release("CD", "part1", "1");
+		assertEquals("part1", allocate(allocator, taken, "part", "1"));
+	}
+
+	@Test
+	public void releaseOnlyAffectsItsVersion() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		assertEquals("part", allocate(allocator, taken, "part", "1"));
+		assertEquals("part1", allocate(allocator, taken, "part", "1"));
+		taken.clear();
+
+		allocator.release("CD", "part", "2");
+		assertEquals("part2", allocate(allocator, taken, "part", "1"));
+		allocator.release("CD", "part", "1");
+		assertEquals("part", allocate(allocator, taken, "part", "1"));
+	}
+
+	@Test
+	public void rangesSkipTheFirstSuffix() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		taken.add("Range");
+		assertEquals("Range2", allocator.allocate("Range", "Range", null, id -> taken.contains(id)));
+	}
+
+	@Test
+	public void releaseFindsTheDisplayIdBeforeAnySuffix() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		for (int i = 0; i < 12; i++) {
+			allocate(allocator, taken, "part1", "1");
+		}
+		assertEquals("part112", allocate(allocator, taken, "part1", "1"));
+
+		// part15 could also be part + 15, which was never allocated
+		taken.remove("part15");
+		allocator.release("CD", "part15", "1");
+		assertEquals("part15", allocate(allocator, taken, "part1", "1"));
+	}
+
+	@Test
+	public void releasedDisplayIdsAreForgotten() throws SBOLValidationException {
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+		Set<String> taken = new HashSet<>();
+		assertEquals("part", allocate(allocator, taken, "part", "1"));
+		assertEquals("part1", allocate(allocator, taken, "part", "1"));
+		assertFalse(allocator.isEmpty());
+
+		allocator.release("CD", "part1", "1");
+		assertFalse(allocator.isEmpty());
+		allocator.release("CD", "part", "1");
+		assertTrue(allocator.isEmpty());
+	}
+
+	@Test
+	public void rangesAreCheckedAgainstTheLocationsOfComp() throws SBOLValidationException {
+		SBOLDocument doc = new SBOLDocument();
+		doc.setDefaultURIprefix("http://example.com");
+		ComponentDefinition comp = doc.createComponentDefinition("comp", ComponentDefinition.DNA);
+		comp.createSequenceAnnotation("other", "Range2", 11, 20);
+		DisplayIdAllocator allocator = new DisplayIdAllocator();
+
+		assertEquals("Range", allocator.allocateRange(comp, "Range"));
+		comp.createSequenceAnnotation("annotation", "Range", 1, 10);
+		assertEquals("Range3", allocator.allocateRange(comp, "Range"));
+
+		allocator.release("Range", "Range", null);
+		assertEquals("Range", allocator.allocateRange(comp, "Range"));
+		assertEquals("Range4", allocator.allocateRange(comp, "Range"));
+	}
+
+	private static String allocate(DisplayIdAllocator allocator, Set<String> taken, String displayId, String version)
+			throws SBOLValidationException {
+		String allocated = allocator.allocate("CD", displayId, version, taken::contains);
+		taken.add(allocated);
+		return allocated;
+	}
+}
@@ -0,0 +1,100 @@
+package edu.utah.ece.async.sboldesigner.sbol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SequenceRopeTest {
+	@Test
+	public void concatenatesInOrder() {
+		SequenceRope rope = SequenceRope
+				.concat(Arrays.asList(SequenceRope.of("aaa"), SequenceRope.of("cg"), SequenceRope.of("t")));
+		assertEquals("aaacgt", rope.toString());
+		assertEquals(6, rope.length());
+		assertEquals('c', rope.charAt(3));
+	}
+
+	@Test
+	public void emptyRopesAreLeftOut() {
+		SequenceRope rope = SequenceRope.concat(Arrays.asList(SequenceRope.EMPTY, SequenceRope.of("acg"),
+				SequenceRope.of(""), SequenceRope.of((String) null)));
+		assertEquals("acg", rope.toString());
+		assertEquals(SequenceRope.EMPTY, SequenceRope.concat(new ArrayList<>()));
+	}
+
+	@Test
+	public void reverseComplementKeepsCaseAndAmbiguityCodes() {
+		SequenceRope rope = SequenceRope.of("aCgtNryK");
+		assertEquals("MryNacGt", rope.reverseComplement().toString());
+		assertEquals('M', rope.reverseComplement().charAt(0));
+		assertTrue(rope.reverseComplement().reverseComplement() == rope);
+	}
+
+	@Test
+	public void reverseComplementOfConcatenation() {
+		SequenceRope rope = SequenceRope.concat(Arrays.asList(SequenceRope.of("aac"),
+				SequenceRope.of("gtt").reverseComplement(), SequenceRope.of("ggt")));
+		assertEquals("aacaacggt", rope.toString());
+		assertEquals("accgttgtt", rope.reverseComplement().toString());
+		assertTrue(rope.reverseComplement().contentEquals(SequenceRope.of("accgttgtt")));
+	}
+
+	@Test
+	public void equalContentBuiltDifferently() {
+		Random random = new Random(1);
+		for (int n = 0; n < 100; n++) {
+			String elements = randomElements(random, random.nextInt(200));
+			List<SequenceRope> pieces = new ArrayList<>();
+			int start = 0;
+			while (start < elements.length()) {
+				int end = Math.min(elements.length(), start + 1 + random.nextInt(20));
+				String piece = elements.substring(start, end);
+				// some pieces are stored as the reverse complement of the
+				// reverse complement
+				if (random.nextBoolean()) {
+					String rc = SequenceRope.of(piece).reverseComplement().toString();
+					pieces.add(SequenceRope.of(rc).reverseComplement());
+				} else {
+					pieces.add(SequenceRope.of(piece));
+				}
+				start = end;
+			}
+
+			SequenceRope rope = SequenceRope.concat(pieces);
+			assertEquals(elements, rope.toString());
+			assertTrue(rope.contentEquals(SequenceRope.of(elements)));
+			assertTrue(SequenceRope.of(elements).contentEquals(rope));
+			assertEquals(SequenceRope.of(elements).contentHash(), rope.contentHash());
+			String reversed = SequenceRope.of(elements).reverseComplement().toString();
+			assertTrue(rope.reverseComplement().contentEquals(SequenceRope.of(reversed)));
+			for (int i = 0; i < elements.length(); i++) {
+				assertEquals(elements.charAt(i), rope.charAt(i));
+			}
+		}
+	}
+
+	@Test
+	public void differentContentIsNotEqual() {
+		assertFalse(SequenceRope.of("acgt").contentEquals(SequenceRope.of("acga")));
+		assertFalse(SequenceRope.of("acgt").contentEquals(SequenceRope.of("acg")));
+		assertFalse(SequenceRope.of("acgt").contentEquals(SequenceRope.of("ACGT")));
+		assertFalse(SequenceRope.of("aacc").contentEquals(SequenceRope.of("aacc").reverseComplement()));
+		assertTrue(SequenceRope.of("acgt").contentEquals(SequenceRope.of("acgt").reverseComplement()));
+	}
+
+	private static String randomElements(Random random, int length) {
+		String bases = "acgtACGTn";
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(bases.charAt(random.nextInt(bases.length())));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,140 @@
+package edu.utah.ece.async.sboldesigner.sbol.editor.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+
+import javax.xml.namespace.QName;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.sbolstandard.core2.AccessType;
+import org.sbolstandard.core2.Activity;
+import org.sbolstandard.core2.Association;
+import org.sbolstandard.core2.Collection;
+import org.sbolstandard.core2.Component;
+import org.sbolstandard.core2.ComponentDefinition;
+import org.sbolstandard.core2.OrientationType;
+import org.sbolstandard.core2.RestrictionType;
+import org.sbolstandard.core2.SBOLDocument;
+import org.sbolstandard.core2.SBOLReader;
+import org.sbolstandard.core2.SBOLWriter;
+import org.sbolstandard.core2.Sequence;
+import org.sbolstandard.core2.SequenceAnnotation;
+import org.sbolstandard.core2.SequenceOntology;
+import org.sbolstandard.core2.Usage;
+
+public class DocumentSnapshotTest {
+	@Test
+	public void snapshotReadsLikeTheFile() throws Exception {
+		SBOLDocument fromXml = readXml(createDocument());
+		assertEquals(fromXml, roundTrip(fromXml));
+	}
+
+	@Test
+	public void snapshotsThatReadBackDifferentlyAreRefused() throws Exception {
+		byte[] content = DocumentSnapshot.encode(readXml(createDocument()));
+		assertNotNull(content);
+
+		// as if the format left out the name of part
+		SBOLDocument changed = readXml(createDocument());
+		changed.getComponentDefinition("part", "1").unsetName();
+		assertFalse(DocumentSnapshot.readsBack(changed, content));
+	}
+
+	@Test(expected = DocumentSnapshot.UnsupportedContentException.class)
+	public void unsupportedTopLevelsAreRefused() throws Exception {
+		SBOLDocument doc = createDocument();
+		doc.createModuleDefinition("module", "1");
+		DocumentSnapshot.writeContent(doc, new DataOutputStream(new ByteArrayOutputStream()));
+	}
+
+	@Test(expected = IOException.class)
+	public void countsAreBoundedByTheSnapshotLength() throws Exception {
+		// a string table of Integer.MAX_VALUE strings
+		byte[] corrupt = { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 };
+		DocumentSnapshot.readContent(new DataInputStream(new ByteArrayInputStream(corrupt)), corrupt.length);
+	}
+
+	private static SBOLDocument createDocument() throws Exception {
+		SBOLDocument doc = new SBOLDocument();
+		doc.setDefaultURIprefix("http://example.com");
+
+		Sequence packed = doc.createSequence("packed", "1", "acgtacgtaacg", Sequence.IUPAC_DNA);
+		doc.createSequence("upper", "1", "ACGTTT", Sequence.IUPAC_DNA);
+		doc.createSequence("raw", "1", "acgtnnryk", Sequence.IUPAC_DNA);
+		doc.createSequence("rna", "1", "ACGUU", Sequence.IUPAC_RNA);
+
+		ComponentDefinition part = doc.createComponentDefinition("part", "1", ComponentDefinition.DNA);
+		part.setName("Part");
+		part.setDescription("A part with everything");
+		part.addRole(SequenceOntology.ENGINEERED_REGION);
+		part.addSequence(packed);
+		part.addWasDerivedFrom(URI.create("http://example.org/original"));
+		part.createAnnotation(new QName("http://example.org/terms#", "note", "ex"), "a note");
+		part.createAnnotation(new QName("http://example.org/terms#", "link", "ex"),
+				URI.create("http://example.org/link"));
+
+		ComponentDefinition promoter = doc.createComponentDefinition("promoter", "1", ComponentDefinition.DNA);
+		promoter.addRole(SequenceOntology.PROMOTER);
+		ComponentDefinition cds = doc.createComponentDefinition("cds", "1", ComponentDefinition.DNA);
+		cds.addRole(SequenceOntology.CDS);
+
+		Component promoterComponent = part.createComponent("promoter_c", AccessType.PUBLIC,
+				promoter.getIdentity());
+		promoterComponent.addWasDerivedFrom(URI.create("http://example.org/original_promoter"));
+		Component cdsComponent = part.createComponent("cds_c", AccessType.PRIVATE, cds.getIdentity());
+		cdsComponent.addRole(SequenceOntology.CDS);
+
+		SequenceAnnotation annotation = part.createSequenceAnnotation("promoter_a", "range", 1, 4,
+				OrientationType.INLINE);
+		annotation.setComponent(promoterComponent.getIdentity());
+		annotation.getLocation("range").setSequence(packed.getIdentity());
+		annotation.addCut("cut", 5, OrientationType.REVERSECOMPLEMENT);
+		annotation.addGenericLocation("generic");
+		SequenceAnnotation feature = part.createSequenceAnnotation("feature", "range", 6, 12);
+		feature.addRole(SequenceOntology.TERMINATOR);
+		part.createSequenceConstraint("constraint", RestrictionType.PRECEDES, promoterComponent.getIdentity(),
+				cdsComponent.getIdentity());
+
+		Collection collection = doc.createCollection("collection", "1");
+		collection.addMember(part.getIdentity());
+		collection.addMember(promoter.getIdentity());
+
+		Activity activity = doc.createActivity("activity", "1");
+		activity.setStartedAtTime(DateTime.parse("2017-05-01T12:00:00.000Z"));
+		activity.setEndedAtTime(DateTime.parse("2017-05-01T12:30:00.000Z"));
+		activity.addWasInformedBy(URI.create("http://example.org/earlier_activity"));
+		Usage usage = activity.createUsage("usage", promoter.getIdentity());
+		usage.addRole(URI.create("http://sbols.org/v2#design"));
+		Association association = activity.createAssociation("association", URI.create("http://example.org/agent"));
+		association.addRole(URI.create("http://sbols.org/v2#design"));
+		association.setPlan(URI.create("http://example.org/plan"));
+		part.addWasGeneratedBy(activity.getIdentity());
+		feature.addWasGeneratedBy(activity.getIdentity());
+
+		return doc;
+	}
+
+	private static SBOLDocument readXml(SBOLDocument doc) throws Exception {
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		SBOLWriter.write(doc, xml);
+		return SBOLReader.read(new ByteArrayInputStream(xml.toByteArray()));
+	}
+
+	private static SBOLDocument roundTrip(SBOLDocument doc) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			DocumentSnapshot.writeContent(doc, out);
+		}
+		return DocumentSnapshot.readContent(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+				bytes.size());
+	}
+}
@@ -0,0 +1,105 @@
+package edu.utah.ece.async.sboldesigner.swing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RowTextIndexTest {
+	@Test
+	public void findsRowsContainingTheQuery() {
+		Model model = new Model(Arrays.asList("pLac promoter", "GFP", "lacI repressor", "terminator"));
+		RowTextIndex<String> index = new RowTextIndex<>(model, row -> new String[] { row });
+
+		assertEquals(bits(0, 2), index.search("lac"));
+		assertEquals(bits(0, 2), index.search("LA"));
+		assertEquals(bits(2), index.search("lacI"));
+		assertEquals(bits(), index.search("xyz"));
+		assertNull(index.search(""));
+	}
+
+	@Test
+	public void searchesEveryField() {
+		Model model = new Model(Arrays.asList("a", "b"));
+		RowTextIndex<String> index = new RowTextIndex<>(model,
+				row -> new String[] { row + "_id", null, row.equals("a") ? "promoter" : "gene" });
+
+		assertEquals(bits(0), index.search("promoter"));
+		assertEquals(bits(1), index.search("b_id"));
+		assertEquals(bits(0, 1), index.search("_id"));
+	}
+
+	@Test
+	public void matchesLikeContainsAsRowsArrive() {
+		Random random = new Random(3);
+		Model model = new Model(new ArrayList<>());
+		RowTextIndex<String> index = new RowTextIndex<>(model, row -> new String[] { row });
+
+		for (int round = 0; round < 20; round++) {
+			List<String> rows = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				rows.add(randomText(random, random.nextInt(12)));
+			}
+			model.addElements(rows);
+
+			// a query and its extensions, which only look at earlier matches
+			String query = "";
+			for (int length = 0; length < 5; length++) {
+				query += randomText(random, 1);
+				assertEquals(query, expected(model, query), index.search(query));
+			}
+		}
+
+		model.setElements(new ArrayList<>(Arrays.asList("Aba", "abab")));
+		assertEquals(bits(0, 1), index.search("aba"));
+		assertEquals(bits(1), index.search("abab"));
+	}
+
+	private static BitSet expected(Model model, String query) {
+		BitSet expected = new BitSet();
+		for (int row = 0; row < model.getRowCount(); row++) {
+			if (model.getElement(row).toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+				expected.set(row);
+			}
+		}
+		return expected;
+	}
+
+	private static String randomText(Random random, int length) {
+		// few letters, so queries match often
+		String letters = "abcAB";
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return sb.toString();
+	}
+
+	private static BitSet bits(int... rows) {
+		BitSet bits = new BitSet();
+		for (int row : rows) {
+			bits.set(row);
+		}
+		return bits;
+	}
+
+	private static class Model extends AbstractListTableModel<String> {
+		private static final long serialVersionUID = 1L;
+
+		Model(List<String> rows) {
+			super(new ArrayList<>(rows), new String[] { "Text" }, new double[] { 1 });
+		}
+
+		@Override
+		protected Object getField(String element, int field) {
+			return element;
+		}
+	}
+}